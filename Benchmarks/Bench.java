@@ -0,0 +1,173 @@
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * A small benchmark harness. A benchmark is a Case: every iteration calls setup (not timed)
+ * and then runs the operation a number of times. After the warmup iterations, it reports
+ * throughput (over whole iterations), latency percentiles of single operations, bytes
+ * allocated per operation by the benchmark thread, and GC count and time.
+ * <p>
+ * Latency is sampled: every n-th operation of a case is timed on its own, between two nanoTime
+ * calls, and the percentiles are over those samples. A percentile is only printed if there
+ * are enough samples for it (10 for p90, 100 for p99, 1000 for p99.9), otherwise "-".
+ */
+public class Bench {
+
+	/**
+	 * A benchmark case.
+	 */
+	public static abstract class Case {
+
+		/**
+		 * Name printed in the report.
+		 */
+		String name;
+
+		/**
+		 * Number of operations per iteration.
+		 */
+		int ops;
+
+		/**
+		 * Every how many operations one is timed for the latency percentiles. Fast operations
+		 * need a larger interval, since the nanoTime calls around a timed operation cost tens
+		 * of nanoseconds, which are counted in the throughput too.
+		 */
+		int sampleEvery;
+
+		public Case(String name, int ops, int sampleEvery) {
+			this.name = name;
+			this.ops = ops;
+			this.sampleEvery = Math.max(1, Math.min(sampleEvery, ops));
+		}
+
+		/**
+		 * Prepares an iteration. Not timed.
+		 */
+		public void setup()
+		throws Exception {
+		}
+
+		/**
+		 * Runs operation number i (0 .. ops-1) of the iteration.
+		 */
+		public abstract void op(int i)
+		throws Exception;
+	}
+
+	/**
+	 * Number of warmup and measured iterations.
+	 */
+	int warmup, iterations;
+
+	public Bench(int warmup, int iterations) {
+		this.warmup = warmup;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Prints the header of the report.
+	 */
+	public void printHeader() {
+		System.out.printf("%-40s %14s %8s %10s %10s %10s %10s %10s %12s %6s %8s%n",
+				"benchmark", "ops/s", "samples", "p50 ns", "p90 ns", "p99 ns", "p99.9 ns", "max ns",
+				"alloc B/op", "gc", "gc ms");
+	}
+
+	/**
+	 * Runs a case and prints its line of the report. A case that throws is reported as failed.
+	 */
+	public void run(Case c) {
+		try {
+			for (int it=0; it < warmup; it++) {
+				iteration(c, null);
+			}
+
+			int perIteration = (c.ops + c.sampleEvery-1) / c.sampleEvery;
+			long[] samples = new long[perIteration*iterations];
+			long ops = 0, nanos = 0;
+			long bytes = allocatedBytes() < 0 ? Long.MIN_VALUE : 0;
+			long gcCount = gcCount(), gcTime = gcTime();
+			for (int it=0; it < iterations; it++) {
+				c.setup();
+				long b0 = allocatedBytes();
+				long t0 = System.nanoTime();
+				iteration(c, samples, it*perIteration);
+				nanos += System.nanoTime() - t0;
+				bytes += allocatedBytes() - b0;
+				ops += c.ops;
+			}
+			gcCount = gcCount() - gcCount;
+			gcTime = gcTime() - gcTime;
+
+			Arrays.sort(samples);
+			System.out.printf("%-40s %14.1f %8d %10s %10s %10s %10s %10d %12s %6d %8d%n",
+					c.name, ops * 1e9 / nanos, samples.length,
+					percentile(samples, 0.5, 1), percentile(samples, 0.9, 10), percentile(samples, 0.99, 100),
+					percentile(samples, 0.999, 1000), samples[samples.length-1],
+					bytes < 0 ? "n/a" : String.format("%.1f", (double)bytes / ops), gcCount, gcTime);
+		} catch (Throwable e) {
+			System.out.printf("%-40s failed: %s%n", c.name, e);
+		}
+	}
+
+	private static void iteration(Case c, long[] samples)
+	throws Exception {
+		c.setup();
+		iteration(c, samples, 0);
+	}
+
+	// runs the operations of one iteration, storing the ns of every sampleEvery-th one in
+	// samples from index s (if samples is not null)
+	private static void iteration(Case c, long[] samples, int s)
+	throws Exception {
+		for (int i=0; i < c.ops; ) {
+			long t0 = System.nanoTime();
+			c.op(i);
+			long t1 = System.nanoTime();
+			if (samples != null) {
+				samples[s++] = t1 - t0;
+			}
+			int end = Math.min(c.ops, i + c.sampleEvery);
+			for (i++; i < end; i++) {
+				c.op(i);
+			}
+		}
+	}
+
+	// the p-th percentile of sorted samples, or "-" if there are fewer than min of them
+	private static String percentile(long[] sorted, double p, int min) {
+		if (sorted.length < min) {
+			return "-";
+		}
+		int i = (int)Math.ceil(p * sorted.length) - 1;
+		return Long.toString(sorted[Math.max(0, Math.min(sorted.length-1, i))]);
+	}
+
+	// bytes allocated so far by this thread, or -1 if the JVM can not tell
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		if (mx instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)mx).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static long gcCount() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			n += Math.max(0, gc.getCollectionCount());
+		}
+		return n;
+	}
+
+	private static long gcTime() {
+		long n = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			n += Math.max(0, gc.getCollectionTime());
+		}
+		return n;
+	}
+}
@@ -0,0 +1,378 @@
+
+import java.io.File;
+import java.util.*;
+
+import structures.*;
+
+/**
+ * Benchmarks for LittleSearchEngine, Trie, MinHeap and MST on synthetic inputs. Usage:
+ * <pre>
+ *   java Benchmarks [name filter]
+ * </pre>
+ * Sizes are set with system properties (defaults in parentheses): docs (200), docWords (2000),
+ * vocabulary (20000), skew (1.0), words (100000), heapSize (1000000), vertices (2000),
+ * sparseDegree (8), denseVertices (400), warmup (2), iterations (5), seed (42), dir (a new
+ * temporary directory for the generated files).
+ */
+public class Benchmarks {
+
+	static int intProp(String name, int def) {
+		return Integer.getInteger(name, def);
+	}
+
+	public static void main(String[] args)
+	throws Exception {
+		String filter = args.length > 0 ? args[0] : "";
+		long seed = Long.getLong("seed", 42);
+		File dir = System.getProperty("dir") != null ? new File(System.getProperty("dir"))
+				: java.nio.file.Files.createTempDirectory("bench").toFile();
+
+		ArrayList<Bench.Case> cases = new ArrayList<Bench.Case>();
+		searchEngineCases(cases, new File(dir, "corpus"), seed);
+		trieCases(cases, dir, seed);
+		heapCases(cases, seed);
+		mstCases(cases, dir, seed);
+
+		Bench bench = new Bench(intProp("warmup", 2), intProp("iterations", 5));
+		System.out.println("inputs in " + dir);
+		bench.printHeader();
+		for (Bench.Case c : cases) {
+			if (c.name.contains(filter)) {
+				bench.run(c);
+			}
+		}
+	}
+
+	static void searchEngineCases(ArrayList<Bench.Case> cases, File dir, long seed)
+	throws Exception {
+		int vocabulary = intProp("vocabulary", 20000);
+		final String[] vocab = Generators.corpus(dir, intProp("docs", 200), intProp("docWords", 2000),
+				vocabulary, Double.parseDouble(System.getProperty("skew", "1.0")), seed);
+		final String docsFile = new File(dir, "docs.txt").getPath();
+		final String noiseFile = new File(dir, "noisewords.txt").getPath();
+		final int threads = Runtime.getRuntime().availableProcessors();
+
+		cases.add(new Bench.Case("lse.makeIndex", 1, 1) {
+			LittleSearchEngine lse;
+			public void setup() {
+				lse = new LittleSearchEngine();
+			}
+			public void op(int i) throws Exception {
+				lse.makeIndex(docsFile, noiseFile);
+			}
+		});
+		cases.add(new Bench.Case("lse.makeIndex." + threads + "threads", 1, 1) {
+			LittleSearchEngine lse;
+			public void setup() {
+				lse = new LittleSearchEngine();
+			}
+			public void op(int i) throws Exception {
+				lse.makeIndex(docsFile, noiseFile, threads);
+			}
+		});
+
+		// query keywords follow the same Zipf distribution as the corpus
+		final LittleSearchEngine lse = new LittleSearchEngine();
+		lse.makeIndex(docsFile, noiseFile);
+		final int queries = 100000;
+		final String[] kw1 = new String[queries], kw2 = new String[queries];
+		Generators.Zipf zipf = new Generators.Zipf(vocab.length, 1.0, new Random(seed));
+		for (int i=0; i < queries; i++) {
+			kw1[i] = vocab[zipf.next()];
+			kw2[i] = vocab[zipf.next()];
+		}
+		cases.add(new Bench.Case("lse.top5search", queries, 10) {
+			public void op(int i) {
+				lse.top5search(kw1[i], kw2[i]);
+			}
+		});
+
+		// the same searches, and frequency lookups of a keyword in a random document, on the
+		// compact index with plain and with compressed postings
+		final ArrayList<String> docNames = new ArrayList<String>();
+		Scanner sc = new Scanner(new File(docsFile));
+		while (sc.hasNext()) {
+			docNames.add(sc.next());
+		}
+		sc.close();
+		final String[] docs = new String[queries];
+		Random rand = new Random(seed);
+		for (int i=0; i < queries; i++) {
+			docs[i] = docNames.get(rand.nextInt(docNames.size()));
+		}
+		for (final boolean compress : new boolean[] { false, true }) {
+			final CompactIndex index = lse.compactIndex(compress);
+			String kind = compress ? "compressed" : "compact";
+			cases.add(new Bench.Case("lse." + kind + ".top5search", queries, 10) {
+				public void op(int i) {
+					index.top5search(kw1[i], kw2[i]);
+				}
+			});
+			cases.add(new Bench.Case("lse." + kind + ".frequency", queries, 10) {
+				public void op(int i) {
+					index.frequency(kw1[i], docs[i]);
+				}
+			});
+		}
+	}
+
+	static void trieCases(ArrayList<Bench.Case> cases, File dir, long seed)
+	throws Exception {
+		final String[] words = Generators.words(intProp("words", 100000), seed);
+		Generators.writeWordList(words, new File(dir, "words.txt"));
+		final String[] prefixes = new String[10000];
+		Random rand = new Random(seed);
+		for (int i=0; i < prefixes.length; i++) {
+			String w = words[rand.nextInt(words.length)];
+			prefixes[i] = w.substring(0, Math.min(w.length(), 2 + rand.nextInt(3)));
+		}
+
+		cases.add(new Bench.Case("trie.insertWord", words.length, 10) {
+			Trie trie;
+			public void setup() {
+				trie = new Trie();
+			}
+			public void op(int i) {
+				trie.insertWord(words[i]);
+			}
+		});
+		cases.add(new Bench.Case("trie.completionList", prefixes.length, 1) {
+			Trie trie;
+			public void setup() {
+				if (trie == null) {
+					trie = new Trie();
+					for (String w : words) {
+						trie.insertWord(w);
+					}
+				}
+			}
+			public void op(int i) {
+				trie.completionList(prefixes[i]);
+			}
+		});
+		cases.add(new Bench.Case("compacttrie.insertWord", words.length, 10) {
+			CompactTrie trie;
+			public void setup() {
+				trie = new CompactTrie();
+			}
+			public void op(int i) {
+				trie.insertWord(words[i]);
+			}
+		});
+		final String[] sorted = words.clone();
+		Arrays.sort(sorted);
+		cases.add(new Bench.Case("compacttrie.buildSorted", 1, 1) {
+			public void op(int i) {
+				CompactTrie.buildSorted(Arrays.asList(sorted).iterator());
+			}
+		});
+		cases.add(new Bench.Case("compacttrie.completionList", prefixes.length, 1) {
+			CompactTrie trie;
+			public void setup() {
+				if (trie == null) {
+					trie = new CompactTrie();
+					for (String w : words) {
+						trie.insertWord(w);
+					}
+				}
+			}
+			public void op(int i) {
+				trie.completionList(prefixes[i]);
+			}
+		});
+		cases.add(new Bench.Case("compacttrie.completions.first10", prefixes.length, 1) {
+			CompactTrie trie;
+			public void setup() {
+				if (trie == null) {
+					trie = new CompactTrie();
+					for (String w : words) {
+						trie.insertWord(w);
+					}
+				}
+			}
+			public void op(int i) {
+				for (Iterator<String> it = trie.completions(prefixes[i], 10); it.hasNext(); ) {
+					it.next();
+				}
+			}
+		});
+		cases.add(new Bench.Case("compacttrie.fuzzyCompletions.1edit.first10", prefixes.length, 1) {
+			CompactTrie trie;
+			public void setup() {
+				if (trie == null) {
+					trie = new CompactTrie();
+					for (String w : words) {
+						trie.insertWord(w);
+					}
+				}
+			}
+			public void op(int i) {
+				trie.fuzzyCompletions(prefixes[i], 1, 10);
+			}
+		});
+		final File trieFile = new File(dir, "words.trie");
+		MappedTrie.write(Arrays.asList(words), trieFile.getPath());
+		cases.add(new Bench.Case("mappedtrie.completionList", prefixes.length, 1) {
+			MappedTrie trie;
+			public void setup() throws Exception {
+				if (trie == null) {
+					trie = MappedTrie.open(trieFile.getPath());
+				}
+			}
+			public void op(int i) {
+				trie.completionList(prefixes[i]);
+			}
+		});
+	}
+
+	static void heapCases(ArrayList<Bench.Case> cases, long seed) {
+		final int n = intProp("heapSize", 1000000);
+		final Integer[] keys = new Integer[n];
+		Random rand = new Random(seed);
+		for (int i=0; i < n; i++) {
+			keys[i] = rand.nextInt();
+		}
+
+		for (final int arity : new int[] { 2, 4, 8 }) {
+			String suffix = arity == 2 ? "" : "." + arity + "ary";
+			cases.add(new Bench.Case("minheap.insert" + suffix, n, 100) {
+				MinHeap<Integer> heap;
+				public void setup() {
+					heap = new MinHeap<Integer>(10, arity);
+				}
+				public void op(int i) {
+					heap.insert(keys[i]);
+				}
+			});
+			cases.add(new Bench.Case("minheap.deleteMin" + suffix, n, 100) {
+				MinHeap<Integer> heap;
+				public void setup() {
+					heap = new MinHeap<Integer>(n, arity);
+					for (Integer k : keys) {
+						heap.insert(k);
+					}
+				}
+				public void op(int i) {
+					heap.deleteMin();
+				}
+			});
+		}
+
+		for (final int arity : new int[] { 2, 4, 8 }) {
+			for (final boolean aligned : new boolean[] { false, true }) {
+				if (aligned && arity == 2) {
+					continue;
+				}
+				String suffix = "." + arity + "ary" + (aligned ? ".aligned" : "");
+				cases.add(new Bench.Case("indexedminheap.insert" + suffix, n, 100) {
+					IndexedMinHeap heap;
+					public void setup() {
+						heap = new IndexedMinHeap(n, arity, aligned);
+					}
+					public void op(int i) {
+						heap.insert(i, keys[i]);
+					}
+				});
+				cases.add(new Bench.Case("indexedminheap.deleteMin" + suffix, n, 100) {
+					IndexedMinHeap heap;
+					public void setup() {
+						heap = new IndexedMinHeap(n, arity, aligned);
+						for (int i=0; i < n; i++) {
+							heap.insert(i, keys[i]);
+						}
+					}
+					public void op(int i) {
+						heap.deleteMin();
+					}
+				});
+			}
+		}
+	}
+
+	static void mstCases(ArrayList<Bench.Case> cases, File dir, long seed)
+	throws Exception {
+		int vertices = intProp("vertices", 2000);
+		final File sparse = new File(dir, "sparse.txt");
+		Generators.graph(sparse, vertices, (long)vertices * intProp("sparseDegree", 8) / 2, 1000, seed);
+		int dense = intProp("denseVertices", 400);
+		final File denseFile = new File(dir, "dense.txt");
+		Generators.graph(denseFile, dense, (long)dense * (dense-1) / 4, 1000, seed);
+
+		for (final File file : new File[] { sparse, denseFile }) {
+			String kind = file == sparse ? "sparse" : "dense";
+			cases.add(new Bench.Case("graph.load." + kind, 1, 1) {
+				public void op(int i) throws Exception {
+					new Graph(file.getPath());
+				}
+			});
+			cases.add(new Bench.Case("graph.load.csr." + kind, 1, 1) {
+				public void op(int i) throws Exception {
+					new CsrGraph(file.getPath());
+				}
+			});
+			final File binary = new File(dir, kind + ".csr");
+			new CsrGraph(file.getPath()).write(binary.getPath());
+			cases.add(new Bench.Case("graph.load.binary." + kind, 1, 1) {
+				public void op(int i) throws Exception {
+					CsrGraph.load(binary.getPath());
+				}
+			});
+			cases.add(new Bench.Case("mst." + kind, 1, 1) {
+				Graph graph;
+				public void setup() throws Exception {
+					// initialize resets the partial trees, so the graph can be reused
+					if (graph == null) {
+						graph = new Graph(file.getPath());
+					}
+				}
+				public void op(int i) {
+					MST.execute(MST.initialize(graph));
+				}
+			});
+			cases.add(new Bench.Case("mst.prim." + kind, 1, 1) {
+				Graph graph;
+				public void setup() throws Exception {
+					if (graph == null) {
+						graph = new Graph(file.getPath());
+					}
+				}
+				public void op(int i) {
+					MST.prim(graph);
+				}
+			});
+			cases.add(new Bench.Case("mst.boruvka." + kind, 1, 1) {
+				Graph graph;
+				public void setup() throws Exception {
+					if (graph == null) {
+						graph = new Graph(file.getPath());
+					}
+				}
+				public void op(int i) {
+					MST.boruvka(graph);
+				}
+			});
+			cases.add(new Bench.Case("mst.prim.csr." + kind, 1, 1) {
+				CsrGraph graph;
+				public void setup() throws Exception {
+					if (graph == null) {
+						graph = new CsrGraph(file.getPath());
+					}
+				}
+				public void op(int i) {
+					MST.prim(graph);
+				}
+			});
+			cases.add(new Bench.Case("mst.boruvka.csr." + kind, 1, 1) {
+				CsrGraph graph;
+				public void setup() throws Exception {
+					if (graph == null) {
+						graph = new CsrGraph(file.getPath());
+					}
+				}
+				public void op(int i) {
+					MST.boruvka(graph);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,158 @@
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Synthetic inputs for the benchmarks, all reproducible from a seed.
+ */
+public class Generators {
+
+	/**
+	 * Noise words written for the generated corpus, and sprinkled into its documents.
+	 */
+	static final String[] NOISE = { "a", "an", "and", "are", "as", "at", "be", "by", "for", "from",
+		"has", "he", "in", "is", "it", "its", "of", "on", "that", "the", "to", "was", "were", "will", "with" };
+
+	static final String[] SYLLABLES = { "al", "an", "ar", "be", "ca", "co", "de", "di", "en", "er",
+		"es", "in", "ing", "ion", "is", "la", "le", "li", "ma", "me", "mi", "ne", "no", "on", "or",
+		"pa", "po", "pre", "ra", "re", "ri", "ro", "sa", "se", "si", "ta", "te", "ti", "tion", "to",
+		"tra", "un", "ve", "vi" };
+
+	/**
+	 * Draws ranks 0..n-1 with probability proportional to 1/(rank+1)^skew.
+	 */
+	public static class Zipf {
+		private double[] cdf;
+		private Random rand;
+
+		public Zipf(int n, double skew, Random rand) {
+			this.rand = rand;
+			cdf = new double[n];
+			double sum = 0;
+			for (int i=0; i < n; i++) {
+				sum += 1 / Math.pow(i+1, skew);
+				cdf[i] = sum;
+			}
+			for (int i=0; i < n; i++) {
+				cdf[i] /= sum;
+			}
+		}
+
+		public int next() {
+			int i = Arrays.binarySearch(cdf, rand.nextDouble());
+			return Math.min(cdf.length-1, i < 0 ? -i-1 : i);
+		}
+	}
+
+	/**
+	 * Returns count distinct lower case words made of common English syllables, so that
+	 * they share prefixes and suffixes the way dictionary words do.
+	 */
+	public static String[] words(int count, long seed) {
+		Random rand = new Random(seed);
+		LinkedHashSet<String> words = new LinkedHashSet<String>(count*2);
+		StringBuilder sb = new StringBuilder();
+		while (words.size() < count) {
+			sb.setLength(0);
+			int syllables = 1 + rand.nextInt(3) + rand.nextInt(3);
+			for (int i=0; i < syllables; i++) {
+				sb.append(SYLLABLES[rand.nextInt(SYLLABLES.length)]);
+			}
+			words.add(sb.toString());
+		}
+		return words.toArray(new String[count]);
+	}
+
+	/**
+	 * Writes a word list in the format of Trie/words4.txt: the number of words on the
+	 * first line, then one word per line.
+	 */
+	public static void writeWordList(String[] words, File file)
+	throws IOException {
+		PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+		pw.println(words.length);
+		for (String w : words) {
+			pw.println(w);
+		}
+		pw.close();
+	}
+
+	/**
+	 * Writes a corpus for LittleSearchEngine into dir: docs documents of wordsPerDoc words each,
+	 * drawn from a vocabulary with a Zipf(skew) distribution, with some capitalization, trailing
+	 * punctuation, noise words and non-keywords mixed in. Also writes the docs file (docs.txt)
+	 * and noise words file (noisewords.txt). Returns the vocabulary, most frequent first.
+	 */
+	public static String[] corpus(File dir, int docs, int wordsPerDoc, int vocabulary, double skew, long seed)
+	throws IOException {
+		dir.mkdirs();
+		Random rand = new Random(seed);
+		String[] vocab = words(vocabulary, seed);
+		Zipf zipf = new Zipf(vocabulary, skew, rand);
+
+		PrintWriter noise = new PrintWriter(new FileWriter(new File(dir, "noisewords.txt")));
+		for (String nw : NOISE) {
+			noise.println(nw);
+		}
+		noise.close();
+
+		PrintWriter list = new PrintWriter(new FileWriter(new File(dir, "docs.txt")));
+		for (int d=0; d < docs; d++) {
+			File doc = new File(dir, "doc" + d + ".txt");
+			list.println(doc.getPath());
+			PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(doc)));
+			for (int w=0; w < wordsPerDoc; w++) {
+				int r = rand.nextInt(100);
+				String word;
+				if (r < 25) {
+					word = NOISE[rand.nextInt(NOISE.length)];
+				} else if (r < 27) {
+					word = vocab[zipf.next()] + "'s";
+				} else {
+					word = vocab[zipf.next()];
+				}
+				if (r % 10 == 0) {
+					word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+				}
+				pw.print(word);
+				if (r % 7 == 0) {
+					pw.print(".,?:;!".charAt(r % 6));
+				}
+				pw.print(w % 12 == 11 ? '\n' : ' ');
+			}
+			pw.close();
+		}
+		list.close();
+		return vocab;
+	}
+
+	/**
+	 * Writes a random connected, weighted, undirected graph in the format read by
+	 * structures.Graph: the number of vertices, the vertex names, then one "v1 v2 weight" line
+	 * per edge. The first vertices-1 edges form a random spanning tree; the rest join random
+	 * pairs of distinct vertices. Weights are in 1..maxWeight.
+	 */
+	public static void graph(File file, int vertices, long edges, int maxWeight, long seed)
+	throws IOException {
+		Random rand = new Random(seed);
+		PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(file), 1 << 16));
+		pw.println(vertices);
+		for (int v=0; v < vertices; v++) {
+			pw.println("v" + v);
+		}
+		for (long e=0; e < edges; e++) {
+			int v1, v2;
+			if (e < vertices-1) {
+				v1 = (int)e + 1;
+				v2 = rand.nextInt(v1);
+			} else {
+				v1 = rand.nextInt(vertices);
+				do {
+					v2 = rand.nextInt(vertices);
+				} while (v2 == v1);
+			}
+			pw.println("v" + v1 + " v" + v2 + " " + (1 + rand.nextInt(maxWeight)));
+		}
+		pw.close();
+	}
+}
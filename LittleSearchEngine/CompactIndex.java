@@ -0,0 +1,281 @@
+
+import java.util.*;
+
+/**
+ * A read-only, compact copy of a keywordsIndex. Documents are numbered by a DocumentDictionary,
+ * and the occurrence list of each keyword is a single array of packed postings, in the same
+ * descending order of frequencies as the Occurrence list it was built from. If the document ids
+ * and the highest frequency fit in 32 bits together, as they do unless there are millions of
+ * documents or some keyword occurs thousands of times in one, the postings are ints packed as
+ * (frequency << docBits | document id), 4 bytes each; otherwise they are longs packed as
+ * (frequency << 32 | document id), 8 bytes each. An Occurrence in an ArrayList takes a list
+ * slot plus an object header, reference and int, about 28 bytes. Optionally, the postings
+ * are further compressed into blocks with skip data (see CompressedPostings).
+ */
+public class CompactIndex {
+
+	/**
+	 * Document names and ids.
+	 */
+	DocumentDictionary documents;
+
+	/**
+	 * Hash table from keyword to its postings packed in longs, used when they do not fit in ints.
+	 */
+	HashMap<String,long[]> postings;
+
+	/**
+	 * Hash table from keyword to its postings packed in ints, and the number of low bits of
+	 * each that hold the document id.
+	 */
+	HashMap<String,int[]> narrowPostings;
+	int docBits;
+
+	/**
+	 * Hash table from keyword to its compressed postings, used instead of postings when
+	 * the index is compressed.
+	 */
+	HashMap<String,CompressedPostings> compressedPostings;
+
+	/**
+	 * Builds a compact copy of the given keywords index.
+	 */
+	public CompactIndex(Map<String,? extends List<Occurrence>> keywordsIndex) {
+		this(keywordsIndex, false);
+	}
+
+	/**
+	 * Builds a compact copy of the given keywords index, with compressed postings if compress is true.
+	 */
+	public CompactIndex(Map<String,? extends List<Occurrence>> keywordsIndex, boolean compress) {
+		// number the documents first, to know how many bits the ids take
+		documents = new DocumentDictionary();
+		int maxFreq = 0;
+		for (List<Occurrence> occs : keywordsIndex.values()) {
+			for (Occurrence occ : occs) {
+				documents.add(occ.document);
+				maxFreq = Math.max(maxFreq, occ.frequency);
+			}
+		}
+		docBits = 32 - Integer.numberOfLeadingZeros(Math.max(documents.size()-1, 0));
+		if (!compress && (long)maxFreq >>> (32 - docBits) == 0) {
+			narrowPostings = new HashMap<String,int[]>(keywordsIndex.size()*2);
+			for (Map.Entry<String,? extends List<Occurrence>> e : keywordsIndex.entrySet()) {
+				List<Occurrence> occs = e.getValue();
+				int[] list = new int[occs.size()];
+				int i = 0;
+				for (Occurrence occ : occs) {
+					list[i++] = occ.frequency << docBits | documents.idOf(occ.document);
+				}
+				narrowPostings.put(e.getKey(), list);
+			}
+			return;
+		}
+
+		postings = new HashMap<String,long[]>(keywordsIndex.size()*2);
+		for (Map.Entry<String,? extends List<Occurrence>> e : keywordsIndex.entrySet()) {
+			List<Occurrence> occs = e.getValue();
+			long[] list = new long[occs.size()];
+			int i = 0;
+			for (Occurrence occ : occs) {
+				list[i++] = pack(documents.idOf(occ.document), occ.frequency);
+			}
+			postings.put(e.getKey(), list);
+		}
+		
+		if (compress) {
+			compressedPostings = new HashMap<String,CompressedPostings>(postings.size()*2);
+			for (Map.Entry<String,long[]> e : postings.entrySet()) {
+				compressedPostings.put(e.getKey(), new CompressedPostings(e.getValue()));
+			}
+			postings = null;
+		}
+	}
+
+	static long pack(int docId, int frequency) {
+		return (long)frequency << 32 | (docId & 0xFFFFFFFFL);
+	}
+
+	static int docId(long posting) {
+		return (int)posting;
+	}
+
+	static int frequency(long posting) {
+		return (int)(posting >>> 32);
+	}
+
+	/**
+	 * Returns the document dictionary of this index.
+	 */
+	public DocumentDictionary getDocuments() {
+		return documents;
+	}
+
+	/**
+	 * Returns the number of keywords in this index.
+	 */
+	public int keywordCount() {
+		if (narrowPostings != null) {
+			return narrowPostings.size();
+		}
+		return compressedPostings != null ? compressedPostings.size() : postings.size();
+	}
+
+	/**
+	 * Tells if the postings of this index are compressed.
+	 */
+	public boolean isCompressed() {
+		return compressedPostings != null;
+	}
+
+	/**
+	 * Returns the frequency of a keyword in a document, or 0 if it does not occur there.
+	 * This scans the occurrence list of the keyword, so it takes time linear in its length;
+	 * with compressed postings, the blocks are decoded as they are reached.
+	 */
+	public int frequency(String kw, String doc) {
+		int id = documents.idOf(doc);
+		if (kw == null || id == -1) {
+			return 0;
+		}
+		if (compressedPostings != null) {
+			CompressedPostings list = compressedPostings.get(kw);
+			return list == null ? 0 : list.frequencyOf(id);
+		}
+		if (narrowPostings != null) {
+			int[] list = narrowPostings.get(kw);
+			if (list != null) {
+				int mask = (1 << docBits) - 1;
+				for (int p : list) {
+					if ((p & mask) == id) {
+						return p >>> docBits;
+					}
+				}
+			}
+			return 0;
+		}
+		long[] list = postings.get(kw);
+		if (list != null) {
+			for (long p : list) {
+				if (docId(p) == id) {
+					return frequency(p);
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the occurrences of a keyword, in descending order of frequencies, or null if the
+	 * keyword is not in the index - the same as a keywordsIndex lookup. (This builds Occurrence
+	 * objects, so it is meant for callers that need the keywordsIndex form, not for searching.)
+	 */
+	public ArrayList<Occurrence> get(String kw) {
+		PostingCursor cursor = cursor(kw);
+		if (cursor == null) {
+			return null;
+		}
+		ArrayList<Occurrence> occs = new ArrayList<Occurrence>();
+		while (cursor.next()) {
+			occs.add(new Occurrence(cursor.document(), cursor.frequency()));
+		}
+		return occs;
+	}
+
+	/**
+	 * Search result for "kw1 or kw2", with the same rules as LittleSearchEngine.top5search.
+	 */
+	public ArrayList<String> top5search(String kw1, String kw2) {
+		return topK(5, kw1, kw2);
+	}
+
+	/**
+	 * Search result for any number of keywords, limited to k entries, with the same rules
+	 * as LittleSearchEngine.topK.
+	 */
+	public ArrayList<String> topK(int k, String... keywords) {
+		PostingCursor[] cursors = new PostingCursor[keywords.length];
+		for (int i=0; i < keywords.length; i++) {
+			cursors[i] = cursor(keywords[i]);
+		}
+		return LittleSearchEngine.topK(k, cursors);
+	}
+
+	// cursor over the postings of a keyword, or null if it is not in the index
+	private PostingCursor cursor(String kw) {
+		if (kw == null) {
+			return null;
+		}
+		if (compressedPostings != null) {
+			CompressedPostings list = compressedPostings.get(kw);
+			return list == null ? null : new BlockCursor(list);
+		}
+		if (narrowPostings != null) {
+			int[] list = narrowPostings.get(kw);
+			return list == null ? null : new NarrowCursor(list);
+		}
+		long[] list = postings.get(kw);
+		return list == null ? null : new Cursor(list);
+	}
+
+	/**
+	 * Cursor over the postings of one keyword packed in longs.
+	 */
+	private class Cursor extends PostingCursor {
+		private long[] list;
+		private int i = -1;
+		Cursor(long[] list) {
+			this.list = list;
+		}
+		boolean next() {
+			return ++i < list.length;
+		}
+		int frequency() {
+			return CompactIndex.frequency(list[i]);
+		}
+		String document() {
+			return documents.name(docId(list[i]));
+		}
+	}
+
+	/**
+	 * Cursor over the postings of one keyword packed in ints.
+	 */
+	private class NarrowCursor extends PostingCursor {
+		private int[] list;
+		private int mask = (1 << docBits) - 1;
+		private int i = -1;
+		NarrowCursor(int[] list) {
+			this.list = list;
+		}
+		boolean next() {
+			return ++i < list.length;
+		}
+		int frequency() {
+			return list[i] >>> docBits;
+		}
+		String document() {
+			return documents.name(list[i] & mask);
+		}
+	}
+
+	/**
+	 * Cursor over compressed postings, which decodes each posting only when it is read (see
+	 * CompressedPostings.Reader).
+	 */
+	private class BlockCursor extends PostingCursor {
+		private CompressedPostings.Reader reader;
+		BlockCursor(CompressedPostings list) {
+			reader = list.new Reader();
+		}
+		boolean next() {
+			return reader.next();
+		}
+		int frequency() {
+			return reader.frequency();
+		}
+		String document() {
+			return documents.name(reader.docId());
+		}
+	}
+}
@@ -0,0 +1,306 @@
+
+import java.util.Arrays;
+
+/**
+ * A compressed posting list. Postings (in descending order of frequencies) are split into
+ * blocks of BLOCK_SIZE, and each block is encoded as:
+ * <pre>
+ *   bits       one byte, the number of bits b used for each document id
+ *   docs       document id - (min id in the block), packed in b bits each
+ *   freqs      the first frequency, then the drop from each frequency to the next, as varints
+ * </pre>
+ * Since the list is sorted on frequency the drops are mostly 0 and take one byte, and the ids
+ * take about log2(number of documents) bits. For every block, the skip data holds its offset
+ * in the encoded bytes, its highest frequency (that of its first posting) and its lowest
+ * document id. A reader can start at any block without decoding the ones before it, and
+ * decodes one posting at a time: the ids have a fixed width, so any one of them is read
+ * directly, and the frequencies are read in order as the reader moves on. On reaching a
+ * block, a reader takes its first frequency from the skip data, so a top-k search that has
+ * its results before such a block comes up does not read the block at all.
+ * <p>
+ * There is no index on document ids: the ids in a block are in frequency order, so a block's
+ * id range spans nearly all documents and cannot rule a block out. Looking up the frequency
+ * of one document reads the ids in order until it is found, which is O(n) in the length of
+ * the list (and all of it when the document is not there), like a scan of the uncompressed
+ * list, only with a few more operations per posting.
+ */
+class CompressedPostings {
+
+	static final int BLOCK_SIZE = 128;
+
+	/**
+	 * Number of postings.
+	 */
+	private int size;
+
+	/**
+	 * Encoded blocks.
+	 */
+	private byte[] data;
+
+	/**
+	 * Skip data, 3 ints per block: offset in data, highest frequency, lowest document id.
+	 */
+	private int[] skips;
+
+	/**
+	 * Compresses postings packed as in CompactIndex (frequency << 32 | document id).
+	 */
+	public CompressedPostings(long[] postings) {
+		size = postings.length;
+		int blocks = (size + BLOCK_SIZE-1) / BLOCK_SIZE;
+		skips = new int[blocks*3];
+		data = new byte[Math.max(16, size*2)];
+		int len = 0;
+
+		for (int b=0; b < blocks; b++) {
+			int from = b*BLOCK_SIZE;
+			int to = Math.min(size, from + BLOCK_SIZE);
+			int minDoc = Integer.MAX_VALUE, maxDoc = Integer.MIN_VALUE;
+			for (int i=from; i < to; i++) {
+				int doc = CompactIndex.docId(postings[i]);
+				minDoc = Math.min(minDoc, doc);
+				maxDoc = Math.max(maxDoc, doc);
+			}
+			int bits = 32 - Integer.numberOfLeadingZeros(maxDoc - minDoc);
+
+			// worst case: bits byte, 4 bytes per id, 5 bytes per varint
+			if (len + 1 + (to-from)*9 > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length*2, len + 1 + (to-from)*9));
+			}
+			skips[b*3] = len;
+			skips[b*3+1] = CompactIndex.frequency(postings[from]);
+			skips[b*3+2] = minDoc;
+
+			data[len++] = (byte)bits;
+			long acc = 0;
+			int filled = 0;
+			for (int i=from; i < to; i++) {
+				acc |= (long)(CompactIndex.docId(postings[i]) - minDoc) << filled;
+				filled += bits;
+				while (filled >= 8) {
+					data[len++] = (byte)acc;
+					acc >>>= 8;
+					filled -= 8;
+				}
+			}
+			if (filled > 0) {
+				data[len++] = (byte)acc;
+			}
+
+			int prev = CompactIndex.frequency(postings[from]);
+			len = writeVarInt(prev, len);
+			for (int i=from+1; i < to; i++) {
+				int freq = CompactIndex.frequency(postings[i]);
+				len = writeVarInt(prev - freq, len);
+				prev = freq;
+			}
+		}
+		data = Arrays.copyOf(data, len);
+	}
+
+	private int writeVarInt(int v, int len) {
+		while ((v & ~0x7F) != 0) {
+			data[len++] = (byte)((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		data[len++] = (byte)v;
+		return len;
+	}
+
+	/**
+	 * Returns the number of postings.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of blocks.
+	 */
+	public int blockCount() {
+		return skips.length/3;
+	}
+
+	/**
+	 * Returns the highest frequency in block b, which is that of its first posting, without
+	 * reading the block.
+	 */
+	public int maxFrequency(int b) {
+		return skips[b*3+1];
+	}
+
+	/**
+	 * Returns the number of bytes taken by the encoded postings and skip data.
+	 */
+	public int byteSize() {
+		return data.length + skips.length*4;
+	}
+
+	// number of postings in block b
+	private int count(int b) {
+		return Math.min(BLOCK_SIZE, size - b*BLOCK_SIZE);
+	}
+
+	// the i-th id packed in bits bits each from data[start]
+	private int packed(int start, int bits, int i) {
+		long bit = (long)i * bits;
+		int p = start + (int)(bit >>> 3);
+		int shift = (int)(bit & 7);
+		int bytes = (shift + bits + 7) >>> 3;
+		long acc = 0;
+		for (int k=0; k < bytes; k++) {
+			acc |= (long)(data[p+k] & 0xFF) << (k*8);
+		}
+		return (int)((acc >>> shift) & ((1L << bits) - 1));
+	}
+
+	/**
+	 * Decodes block b into the given arrays (of at least BLOCK_SIZE entries), and returns
+	 * the number of postings in it.
+	 */
+	public int decodeBlock(int b, int[] freqs, int[] docs) {
+		int count = count(b);
+		int p = skips[b*3];
+		int bits = data[p++];
+		int minDoc = skips[b*3+2];
+		for (int i=0; i < count; i++) {
+			docs[i] = minDoc + packed(p, bits, i);
+		}
+		p += (count*bits + 7) >>> 3;
+
+		int freq = 0;
+		for (int i=0; i < count; i++) {
+			int v = 0;
+			int shift = 0;
+			byte x;
+			do {
+				x = data[p++];
+				v |= (x & 0x7F) << shift;
+				shift += 7;
+			} while (x < 0);
+			freq = i == 0 ? v : freq - v;
+			freqs[i] = freq;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the frequency of the given document in this list, or 0 if it is not in the list.
+	 * The ids are read in order until the document is found, so this takes time linear in
+	 * the position of the document in the list; only the frequencies of the block that holds
+	 * it are decoded.
+	 */
+	public int frequencyOf(int docId) {
+		for (int b=0; b < blockCount(); b++) {
+			int rel = docId - skips[b*3+2];
+			int p = skips[b*3];
+			int bits = data[p++];
+			if (rel < 0 || (bits < 32 && rel >>> bits != 0)) {
+				continue;
+			}
+			int count = count(b);
+			long mask = (1L << bits) - 1;
+			long acc = 0;
+			int filled = 0;
+			for (int i=0; i < count; i++) {
+				while (filled < bits) {
+					acc |= (long)(data[p++] & 0xFF) << filled;
+					filled += 8;
+				}
+				int id = (int)(acc & mask);
+				acc >>>= bits;
+				filled -= bits;
+				if (id == rel) {
+					Reader r = new Reader();
+					r.block = b;
+					r.count = count;
+					r.freq = skips[b*3+1];
+					while (r.i < i) {
+						r.next();
+					}
+					return r.freq;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Reads the postings one at a time, decoding each one only when it is reached. A new
+	 * reader is positioned before the first posting.
+	 */
+	class Reader {
+		private int block = -1;
+		private int count = 0;
+		private int i = 0;
+		private int freq;
+
+		/**
+		 * Start of the block's ids, their width, and the position of the next frequency
+		 * varint to read, once the block is opened.
+		 */
+		private boolean opened;
+		private int docStart, bits, p;
+
+		/**
+		 * Moves to the next posting. Returns false if there are no more.
+		 */
+		boolean next() {
+			if (block >= 0 && i+1 < count) {
+				if (i == 0) {
+					// the first frequency came from the skip data; skip its varint
+					open();
+					while (data[p++] < 0) {
+					}
+				}
+				i++;
+				int v = 0;
+				int shift = 0;
+				byte x;
+				do {
+					x = data[p++];
+					v |= (x & 0x7F) << shift;
+					shift += 7;
+				} while (x < 0);
+				freq -= v;
+				return true;
+			}
+			if (block+1 >= blockCount()) {
+				return false;
+			}
+			block++;
+			count = count(block);
+			i = 0;
+			freq = skips[block*3+1];
+			opened = false;
+			return true;
+		}
+
+		/**
+		 * Frequency of the current posting.
+		 */
+		int frequency() {
+			return freq;
+		}
+
+		/**
+		 * Document id of the current posting.
+		 */
+		int docId() {
+			open();
+			return skips[block*3+2] + packed(docStart, bits, i);
+		}
+
+		// reads the header of the current block, the first time it is needed
+		private void open() {
+			if (!opened) {
+				int q = skips[block*3];
+				bits = data[q];
+				docStart = q+1;
+				p = docStart + ((count*bits + 7) >>> 3);
+				opened = true;
+			}
+		}
+	}
+}
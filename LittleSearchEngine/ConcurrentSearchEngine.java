@@ -0,0 +1,218 @@
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A keyword index that can be searched by any number of threads while documents are being
+ * merged into it. Searches never lock: the occurrence list of each keyword is an array that
+ * is never changed once it is published in a ConcurrentHashMap. A merge or removal builds a
+ * new, fully sorted copy of each list it changes and then swaps it in, so a search sees either
+ * the old list or the new one, never one that is half sorted. Writers are serialized on a
+ * single lock. (Only each list is swapped atomically - a search that runs during a merge may
+ * see the new list of one keyword and the old list of another.)
+ */
+public class ConcurrentSearchEngine {
+
+	/**
+	 * Engine used to scan documents and order occurrences. Its own keywordsIndex is not used.
+	 * Its noise words must not change once documents are being indexed.
+	 */
+	private LittleSearchEngine engine;
+
+	/**
+	 * Hash table of all keywords, with the occurrences of each in descending order of frequencies.
+	 * The arrays are never modified after they are put in the table.
+	 */
+	private ConcurrentHashMap<String,Occurrence[]> keywordsIndex;
+
+	/**
+	 * Keywords of each indexed document, as in LittleSearchEngine.documentKeywords. Only
+	 * used by writers, under writeLock.
+	 */
+	private HashMap<String,HashMap<String,Occurrence>> documentKeywords;
+
+	private final Object writeLock = new Object();
+
+	/**
+	 * Creates an empty index.
+	 */
+	public ConcurrentSearchEngine() {
+		engine = new LittleSearchEngine();
+		keywordsIndex = new ConcurrentHashMap<String,Occurrence[]>(1000);
+		documentKeywords = new HashMap<String,HashMap<String,Occurrence>>();
+	}
+
+	/**
+	 * Loads noise words, and indexes all the documents listed in the docs file. Searches may
+	 * run while this is in progress, and see the index as it was before until it is done;
+	 * other writers wait for it. The new occurrences are put in private lists, and each
+	 * changed occurrence list is published once at the end, so indexing n documents copies
+	 * every list once rather than once per document that has its keyword.
+	 */
+	public void makeIndex(String docsFile, String noiseWordsFile)
+	throws FileNotFoundException {
+		engine.loadNoiseWords(noiseWordsFile);
+		Scanner sc = new Scanner(new File(docsFile));
+		synchronized (writeLock) {
+			HashMap<String,OccurrenceList> pending = new HashMap<String,OccurrenceList>(1000);
+			try {
+				while (sc.hasNext()) {
+					String docFile = sc.next();
+					HashMap<String,Occurrence> kws = engine.loadKeyWords(docFile);
+					if (documentKeywords.containsKey(docFile)) {
+						// removal works on the published lists
+						publish(pending);
+						removeDocument(docFile);
+					}
+					for (Map.Entry<String,Occurrence> e : kws.entrySet()) {
+						addDocumentKeyword(e.getKey(), e.getValue());
+						OccurrenceList occs = pending.get(e.getKey());
+						if (occs == null) {
+							occs = new OccurrenceList();
+							Occurrence[] old = keywordsIndex.get(e.getKey());
+							if (old != null) {
+								occs.addAll(Arrays.asList(old));
+							}
+							pending.put(e.getKey(), occs);
+						}
+						occs.insertByFrequency(e.getValue());
+					}
+				}
+			} finally {
+				publish(pending);
+				sc.close();
+			}
+		}
+	}
+
+	// publishes the pending occurrence lists, and clears them
+	private void publish(HashMap<String,OccurrenceList> pending) {
+		for (Map.Entry<String,OccurrenceList> e : pending.entrySet()) {
+			OccurrenceList occs = e.getValue();
+			keywordsIndex.put(e.getKey(), occs.toArray(new Occurrence[occs.size()]));
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Merges the keywords for a single document into the index. Each changed occurrence list is
+	 * copied once, with the new occurrence where LittleSearchEngine.insertLastOccurrence would
+	 * put it (so the order is the same as in a LittleSearchEngine), and the copy is then published.
+	 */
+	public void mergeKeyWords(HashMap<String,Occurrence> kws) {
+		synchronized (writeLock) {
+			for (Map.Entry<String,Occurrence> e : kws.entrySet()) {
+				Occurrence occ = e.getValue();
+				addDocumentKeyword(e.getKey(), occ);
+
+				Occurrence[] old = keywordsIndex.get(e.getKey());
+				if (old == null) {
+					keywordsIndex.put(e.getKey(), new Occurrence[] { occ });
+					continue;
+				}
+				int i = OccurrenceList.insertionPoint(Arrays.asList(old), occ.frequency);
+				Occurrence[] occs = new Occurrence[old.length + 1];
+				System.arraycopy(old, 0, occs, 0, i);
+				occs[i] = occ;
+				System.arraycopy(old, i, occs, i+1, old.length-i);
+				keywordsIndex.put(e.getKey(), occs);
+			}
+		}
+	}
+
+	// records that a keyword occurs in a document, for removeDocument
+	private void addDocumentKeyword(String kw, Occurrence occ) {
+		HashMap<String,Occurrence> docKws = documentKeywords.get(occ.document);
+		if (docKws == null) {
+			docKws = new HashMap<String,Occurrence>();
+			documentKeywords.put(occ.document, docKws);
+		}
+		docKws.put(kw, occ);
+	}
+
+	/**
+	 * Adds a document to the index, or updates it if it is already indexed.
+	 */
+	public void addDocument(String docFile)
+	throws FileNotFoundException {
+		HashMap<String,Occurrence> kws = engine.loadKeyWords(docFile);
+		synchronized (writeLock) {
+			removeDocument(docFile);
+			mergeKeyWords(kws);
+		}
+	}
+
+	/**
+	 * Rescans a document that has changed, and replaces its occurrences in the index.
+	 */
+	public void updateDocument(String docFile)
+	throws FileNotFoundException {
+		addDocument(docFile);
+	}
+
+	/**
+	 * Removes a document from the index. Returns false if the document was not indexed.
+	 */
+	public boolean removeDocument(String docFile) {
+		synchronized (writeLock) {
+			HashMap<String,Occurrence> docKws = documentKeywords.remove(docFile);
+			if (docKws == null) {
+				return false;
+			}
+			for (Map.Entry<String,Occurrence> e : docKws.entrySet()) {
+				Occurrence[] old = keywordsIndex.get(e.getKey());
+				if (old == null) {
+					continue;
+				}
+				int i = 0;
+				while (i < old.length && old[i] != e.getValue()) {
+					i++;
+				}
+				if (i == old.length) {
+					continue;
+				}
+				if (old.length == 1) {
+					keywordsIndex.remove(e.getKey());
+					continue;
+				}
+				Occurrence[] occs = new Occurrence[old.length-1];
+				System.arraycopy(old, 0, occs, 0, i);
+				System.arraycopy(old, i+1, occs, i, occs.length-i);
+				keywordsIndex.put(e.getKey(), occs);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns a copy of the occurrences of a keyword, in descending order of frequencies,
+	 * or null if the keyword is not in the index.
+	 */
+	public ArrayList<Occurrence> getOccurrences(String kw) {
+		Occurrence[] occs = kw == null ? null : keywordsIndex.get(kw);
+		return occs == null ? null : new ArrayList<Occurrence>(Arrays.asList(occs));
+	}
+
+	/**
+	 * Search result for "kw1 or kw2", with the same rules as LittleSearchEngine.top5search.
+	 */
+	public ArrayList<String> top5search(String kw1, String kw2) {
+		return topK(5, kw1, kw2);
+	}
+
+	/**
+	 * Search result for any number of keywords, limited to k entries, with the same rules
+	 * as LittleSearchEngine.topK. Does not block on writers.
+	 */
+	public ArrayList<String> topK(int k, String... keywords) {
+		PostingCursor[] cursors = new PostingCursor[keywords.length];
+		for (int i=0; i < keywords.length; i++) {
+			Occurrence[] occs = keywords[i] == null ? null : keywordsIndex.get(keywords[i]);
+			if (occs != null) {
+				cursors[i] = PostingCursor.over(occs);
+			}
+		}
+		return LittleSearchEngine.topK(k, cursors);
+	}
+}
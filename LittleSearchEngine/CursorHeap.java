@@ -0,0 +1,104 @@
+
+import java.util.NoSuchElementException;
+
+/**
+ * A heap of posting cursors, used to merge posting lists in descending order of frequencies.
+ * The cursor at the top is the one whose current posting has the highest frequency; ties go to
+ * the cursor with the lowest index, i.e. the keyword that came first in the query. This is a
+ * primitive variant of MinHeap that stores cursor indexes in an int array.
+ */
+class CursorHeap {
+
+	private PostingCursor[] cursors;
+	private int[] items;
+	private int size;
+
+	/**
+	 * Constructs an empty heap that can hold all of the given cursors.
+	 */
+	public CursorHeap(PostingCursor[] cursors) {
+		this.cursors = cursors;
+		items = new int[cursors.length];
+		size = 0;
+	}
+
+	// true if cursor a comes before cursor b
+	private boolean before(int a, int b) {
+		int fa = cursors[a].frequency();
+		int fb = cursors[b].frequency();
+		return fa > fb || (fa == fb && a < b);
+	}
+
+	public void siftUp(int k) {  // sift up starting at k
+		int item = items[k];
+		while (k > 0) {
+			int p = (k-1)/2;
+			if (!before(item, items[p])) {
+				break;
+			}
+			items[k] = items[p];
+			k = p;
+		}
+		items[k] = item;
+	}
+
+	public void siftDown(int k) {  // sift down starting at k
+		int item = items[k];
+		while (2*k+1 < size) {
+			int min = 2*k+1;
+			if (min+1 < size && before(items[min+1], items[min])) {
+				min++;
+			}
+			if (!before(items[min], item)) {
+				break;
+			}
+			items[k] = items[min];
+			k = min;
+		}
+		items[k] = item;
+	}
+
+	/**
+	 * Inserts a cursor (by its index), which must be positioned on a posting.
+	 */
+	public void insert(int cursor) {
+		items[size++] = cursor;
+		siftUp(size-1);
+	}
+
+	/**
+	 * Returns (but does not remove) the index of the top cursor.
+	 */
+	public int getMin()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return items[0];
+	}
+
+	/**
+	 * Advances the top cursor to its next posting, and restores heap order. The cursor
+	 * is dropped from the heap if it has no more postings.
+	 */
+	public void advanceMin()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		if (!cursors[items[0]].next()) {
+			items[0] = items[--size];
+			if (size == 0) {
+				return;
+			}
+		}
+		siftDown(0);
+	}
+
+	/**
+	 * Tells if the heap is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+}
@@ -0,0 +1,62 @@
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Maps document names to dense int ids (0, 1, 2, ... in order of addition), and back.
+ */
+public class DocumentDictionary {
+
+	/**
+	 * Document names, indexed by id.
+	 */
+	private ArrayList<String> names;
+
+	/**
+	 * Hash table from document name to id.
+	 */
+	private HashMap<String,Integer> ids;
+
+	/**
+	 * Initializes an empty dictionary.
+	 */
+	public DocumentDictionary() {
+		names = new ArrayList<String>();
+		ids = new HashMap<String,Integer>(100,2.0f);
+	}
+
+	/**
+	 * Returns the id of a document, giving it the next free id if it is not in the dictionary yet.
+	 */
+	public int add(String doc) {
+		Integer id = ids.get(doc);
+		if (id == null) {
+			id = names.size();
+			names.add(doc);
+			ids.put(doc, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the id of a document, or -1 if it is not in the dictionary.
+	 */
+	public int idOf(String doc) {
+		Integer id = ids.get(doc);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the name of the document with the given id.
+	 */
+	public String name(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * Returns the number of documents in the dictionary.
+	 */
+	public int size() {
+		return names.size();
+	}
+}
@@ -0,0 +1,361 @@
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * This class streams the keywords of a document off a byte channel. Words are separated
+ * by whitespace, exactly as with a Scanner, and each word is put through the same test as
+ * LittleSearchEngine.getKeyWord. The test is done in place on a reusable character buffer,
+ * and a String is only created the first time a keyword is seen in the document - after
+ * that the same String instance is returned for every repeat of the keyword.
+ * <p>
+ * A tokenizer can be reset to read another document, keeping its buffers, so a thread that
+ * scans many documents only allocates them once. The noise words are looked up in a table
+ * that the engine builds once and all its tokenizers share (see noiseTable).
+ */
+class KeyWordTokenizer implements Closeable {
+
+	/**
+	 * Engine whose noise words and keyword test are applied.
+	 */
+	private LittleSearchEngine engine;
+
+	/**
+	 * Channel the document is read from.
+	 */
+	private ReadableByteChannel channel;
+
+	/**
+	 * Decodes bytes in the platform charset, same as a FileReader.
+	 */
+	private CharsetDecoder decoder;
+
+	private ByteBuffer bytes;
+	private CharBuffer chars;
+
+	/**
+	 * Decoded characters, and the current read position and limit in it.
+	 */
+	private char[] text;
+	private int pos, limit;
+
+	/**
+	 * Set when the channel is exhausted, and when all of its characters have been decoded.
+	 */
+	private boolean eof, done;
+
+	/**
+	 * Characters of the current word.
+	 */
+	private char[] word;
+	private int length;
+
+	/**
+	 * Whether lower casing an ASCII letter always gives an ASCII letter in the default locale.
+	 * (Not so in Turkish and Azeri, where 'I' becomes a dotless i.)
+	 */
+	private boolean asciiLowerCase;
+
+	/**
+	 * Noise words of the engine, as an open addressing hash table. Shared, never modified.
+	 */
+	private String[] noiseKeys;
+
+	/**
+	 * Open addressing hash table of the keywords returned for the current document. A slot is
+	 * only in use if its stamp is the current generation, so reset empties the table by
+	 * moving on to the next generation, without clearing it.
+	 */
+	private String[] keys;
+	private int[] stamp;
+	private int generation;
+	private int count;
+
+	/**
+	 * Initializes a tokenizer with no document; reset gives it one.
+	 */
+	public KeyWordTokenizer(LittleSearchEngine engine) {
+		this.engine = engine;
+		decoder = Charset.defaultCharset().newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		bytes = ByteBuffer.allocate(1 << 16);
+		text = new char[1 << 16];
+		chars = CharBuffer.wrap(text);
+		word = new char[32];
+
+		String lang = Locale.getDefault().getLanguage();
+		asciiLowerCase = !lang.equals("tr") && !lang.equals("az");
+
+		keys = new String[64];
+		stamp = new int[64];
+	}
+
+	/**
+	 * Initializes a tokenizer over the given document file.
+	 */
+	public KeyWordTokenizer(LittleSearchEngine engine, String docFile)
+	throws FileNotFoundException {
+		this(engine);
+		reset(new FileInputStream(docFile).getChannel());
+	}
+
+	/**
+	 * Initializes a tokenizer over the given channel. The noise words of the engine
+	 * must already be loaded.
+	 */
+	public KeyWordTokenizer(LittleSearchEngine engine, ReadableByteChannel channel) {
+		this(engine);
+		reset(channel);
+	}
+
+	/**
+	 * Starts reading a new document off the given channel, forgetting the previous one (which
+	 * should have been closed). The noise words of the engine must already be loaded.
+	 */
+	public void reset(ReadableByteChannel channel) {
+		this.channel = channel;
+		decoder.reset();
+		bytes.clear();
+		bytes.flip();
+		pos = limit = 0;
+		eof = done = false;
+		noiseKeys = engine.noiseTable();
+		count = 0;
+		if (++generation == 0) {
+			// stamps have wrapped around: clear them for real
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * Builds the open addressing hash table of the given noise words that tokenizers look
+	 * words up in. The table is at most a quarter full.
+	 */
+	static String[] noiseTable(Collection<String> noiseWords) {
+		int cap = 64;
+		while (cap < noiseWords.size() * 4) {
+			cap *= 2;
+		}
+		String[] table = new String[cap];
+		int mask = cap-1;
+		for (String nw : noiseWords) {
+			int h = nw.hashCode();
+			int i = (h ^ (h >>> 16)) & mask;
+			while (table[i] != null && !table[i].equals(nw)) {
+				i = (i+1) & mask;
+			}
+			table[i] = nw;
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the next keyword in the document, or null if there are no more.
+	 */
+	public String nextKeyWord()
+	throws IOException {
+		while (nextWord()) {
+			String kw = keyWord();
+			if (kw != null) {
+				return kw;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Closes the underlying channel.
+	 */
+	public void close()
+	throws IOException {
+		channel.close();
+	}
+
+	// reads the next whitespace delimited word into the word buffer
+	private boolean nextWord()
+	throws IOException {
+		length = 0;
+		while (true) {
+			if (pos == limit && !fill()) {
+				return length > 0;
+			}
+			char c = text[pos++];
+			if (Character.isWhitespace(c)) {
+				if (length > 0) {
+					return true;
+				}
+				continue;
+			}
+			if (length == word.length) {
+				word = Arrays.copyOf(word, length*2);
+			}
+			word[length++] = c;
+		}
+	}
+
+	// decodes the next run of characters, returns false at end of input
+	private boolean fill()
+	throws IOException {
+		chars.clear();
+		while (chars.position() == 0 && !done) {
+			if (!eof) {
+				bytes.compact();
+				eof = channel.read(bytes) < 0;
+				bytes.flip();
+			}
+			if (decoder.decode(bytes, chars, eof).isOverflow()) {
+				break;
+			}
+			if (eof && decoder.flush(chars).isUnderflow()) {
+				done = true;
+			}
+		}
+		pos = 0;
+		limit = chars.position();
+		return limit > 0;
+	}
+
+	/**
+	 * Applies the keyword test of getKeyWord to the word in the buffer. Returns the keyword,
+	 * or null if the word is not one.
+	 */
+	private String keyWord() {
+		int len = length;
+		for (int i=0; i < len; i++) {
+			char c = word[i];
+			if (c >= 128 || (c == 'I' && !asciiLowerCase)) {
+				// lower casing may change the length, leave it to getKeyWord
+				return slowKeyWord();
+			}
+		}
+
+		if (len == 1) {
+			return null;
+		}
+
+		// strip trailing punctuation
+		while (len > 0 && isPunctuation(word[len-1])) {
+			len--;
+		}
+		if (len == 0) {
+			return null;
+		}
+
+		// lower case in place, rejecting anything that is not a letter
+		int h = 0;
+		for (int i=0; i < len; i++) {
+			char c = word[i];
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+				word[i] = c;
+			} else if (c < 'a' || c > 'z') {
+				return null;
+			}
+			h = 31*h + c;
+		}
+
+		if (isNoise(word, len, h)) {
+			return null;
+		}
+		int i = slot(word, len, h);
+		return stamp[i] != generation ? add(i, new String(word, 0, len)) : keys[i];
+	}
+
+	// keyword test for words with non-ASCII characters
+	private String slowKeyWord() {
+		String kw;
+		try {
+			kw = engine.getKeyWord(new String(word, 0, length));
+		} catch (StringIndexOutOfBoundsException e) {
+			// nothing left after stripping punctuation
+			return null;
+		}
+		if (kw == null) {
+			return null;
+		}
+		int i = slot(kw);
+		return stamp[i] != generation ? add(i, kw) : keys[i];
+	}
+
+	private static boolean isPunctuation(char c) {
+		return c == '.' || c == ',' || c == '?' || c == ':' || c == ';' || c == '!';
+	}
+
+	// stores a new keyword at the given free slot
+	private String add(int i, String kw) {
+		keys[i] = kw;
+		stamp[i] = generation;
+		count++;
+		if (count*2 > keys.length) {
+			rehash();
+		}
+		return kw;
+	}
+
+	private void rehash() {
+		String[] oldKeys = keys;
+		int[] oldStamp = stamp;
+		keys = new String[oldKeys.length*2];
+		stamp = new int[keys.length];
+		for (int j=0; j < oldKeys.length; j++) {
+			if (oldStamp[j] == generation) {
+				int i = slot(oldKeys[j]);
+				keys[i] = oldKeys[j];
+				stamp[i] = generation;
+			}
+		}
+	}
+
+	// slot holding the given string, or the free slot where it would go
+	private int slot(String s) {
+		int mask = keys.length-1;
+		int h = s.hashCode();
+		for (int i = (h ^ (h >>> 16)) & mask; ; i = (i+1) & mask) {
+			if (stamp[i] != generation || keys[i].equals(s)) {
+				return i;
+			}
+		}
+	}
+
+	// slot holding the given characters (whose String hash code is h), or the free slot where they would go
+	private int slot(char[] chs, int len, int h) {
+		int mask = keys.length-1;
+		for (int i = (h ^ (h >>> 16)) & mask; ; i = (i+1) & mask) {
+			if (stamp[i] != generation || equal(keys[i], chs, len)) {
+				return i;
+			}
+		}
+	}
+
+	// tells if the given characters (whose String hash code is h) are a noise word
+	private boolean isNoise(char[] chs, int len, int h) {
+		String[] table = noiseKeys;
+		int mask = table.length-1;
+		for (int i = (h ^ (h >>> 16)) & mask; table[i] != null; i = (i+1) & mask) {
+			if (equal(table[i], chs, len)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean equal(String k, char[] chs, int len) {
+		if (k.length() != len) {
+			return false;
+		}
+		for (int j=0; j < len; j++) {
+			if (k.charAt(j) != chs[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
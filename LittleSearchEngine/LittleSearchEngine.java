@@ -1,35 +1,7 @@
 
 import java.io.*;
 import java.util.*;
-
-/**
- * This class encapsulates an occurrence of a keyword in a document. It stores the
- * document name, and the frequency of occurrence in that document. Occurrences are
- * associated with keywords in an index hash table.
- */
-class Occurrence {
-	/**
-	 * Document in which a keyword occurs.
-	 */
-	String document;
-	
-	/**
-	 * The frequency (number of times) the keyword occurs in the above document.
-	 */
-	int frequency;
-	
-	/**
-	 * Initializes this occurrence with the given document,frequency pair.
-	 */
-	public Occurrence(String doc, int freq) {
-		document = doc;
-		frequency = freq;
-	}
-	
-	public String toString() {
-		return "(" + document + "," + frequency + ")";
-	}
-}
+import java.util.concurrent.*;
 
 /**
  * This class builds an index of keywords. Each keyword maps to a set of documents in
@@ -52,11 +24,47 @@ public class LittleSearchEngine {
 	HashMap<String,String> noiseWords;
 	
 	/**
-	 * Creates the keyWordsIndex and noiseWords hash tables.
+	 * The hash table of all indexed documents. The key is the document name, and the associated
+	 * value maps each keyword in the document to the document's Occurrence in keywordsIndex. This
+	 * is what lets a document be removed without searching every occurrence list.
+	 */
+	HashMap<String,HashMap<String,Occurrence>> documentKeywords;
+	
+	/**
+	 * Documents that were merged more than once with mergeKeyWords, so that a keyword's list
+	 * may hold more occurrences of them than documentKeywords records.
+	 */
+	HashSet<String> mergedAgain;
+	
+	/**
+	 * Cache of search results, or null if caching is off.
+	 */
+	QueryCache cache;
+	
+	/**
+	 * The noise words as the table KeyWordTokenizer looks them up in, built when first needed
+	 * after the noise words are loaded, and then shared by all tokenizers.
+	 */
+	private volatile String[] noiseTable;
+	
+	/**
+	 * Tokenizer of each thread that scans documents. It is reset for every document, so its
+	 * buffers are allocated once per thread, not once per document.
+	 */
+	private final ThreadLocal<KeyWordTokenizer> tokenizers = new ThreadLocal<KeyWordTokenizer>() {
+		protected KeyWordTokenizer initialValue() {
+			return new KeyWordTokenizer(LittleSearchEngine.this);
+		}
+	};
+	
+	/**
+	 * Creates the keyWordsIndex, noiseWords and documentKeywords hash tables.
 	 */
 	public LittleSearchEngine() {
 		keywordsIndex = new HashMap<String,ArrayList<Occurrence>>(1000,2.0f);
 		noiseWords = new HashMap<String,String>(100,2.0f);
+		documentKeywords = new HashMap<String,HashMap<String,Occurrence>>();
+		mergedAgain = new HashSet<String>();
 	}
 	
 	/**
@@ -68,15 +76,11 @@ public class LittleSearchEngine {
 	public void makeIndex(String docsFile, String noiseWordsFile) 
 	throws FileNotFoundException {
 		// load noise words to hash table
-		Scanner sc = new Scanner(new File(noiseWordsFile));
-		while (sc.hasNext()) {
-			String word = sc.next();
-			noiseWords.put(word,word);
-		}
+		loadNoiseWords(noiseWordsFile);
 		
 		// index all keywords
 		
-		sc = new Scanner(new File(docsFile));
+		Scanner sc = new Scanner(new File(docsFile));
 		while (sc.hasNext()) {
 			String docFile = sc.next();
 			HashMap<String,Occurrence> kws = loadKeyWords(docFile);
@@ -84,30 +88,153 @@ public class LittleSearchEngine {
 		}
 		
 	}
+	
+	/**
+	 * Parallel version of makeIndex. Documents are scanned by loadKeyWords on a pool of
+	 * the given number of worker threads, while the calling thread merges the per-document
+	 * keyword tables into keywordsIndex in the same order as they are listed in the docs file.
+	 * Since the merge order is the same, the resulting index is identical to the one built
+	 * by the sequential makeIndex, including the order of equal-frequency occurrences.
+	 */
+	public void makeIndex(String docsFile, String noiseWordsFile, int threads) 
+	throws FileNotFoundException, InterruptedException {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		// noise words must be fully loaded before any worker calls getKeyWord
+		loadNoiseWords(noiseWordsFile);
+		
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			// at most this many documents are scanned ahead of the merge
+			int window = threads * 4;
+			ArrayDeque<Future<HashMap<String,Occurrence>>> pending = 
+				new ArrayDeque<Future<HashMap<String,Occurrence>>>(window);
+			
+			Scanner sc = new Scanner(new File(docsFile));
+			while (sc.hasNext()) {
+				final String docFile = sc.next();
+				pending.add(pool.submit(new Callable<HashMap<String,Occurrence>>() {
+					public HashMap<String,Occurrence> call() 
+					throws FileNotFoundException {
+						return loadKeyWords(docFile);
+					}
+				}));
+				if (pending.size() >= window) {
+					mergeKeyWords(waitFor(pending.remove()));
+				}
+			}
+			sc.close();
+			
+			while (!pending.isEmpty()) {
+				mergeKeyWords(waitFor(pending.remove()));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	// waits for a scanned document, rethrowing the scan failure if there was one
+	private static HashMap<String,Occurrence> waitFor(Future<HashMap<String,Occurrence>> doc) 
+	throws FileNotFoundException, InterruptedException {
+		try {
+			return doc.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof FileNotFoundException) {
+				throw (FileNotFoundException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+	
+	/**
+	 * Writes the keywordsIndex to the given file, in the format that MappedIndex.open maps
+	 * back into memory for searching without rebuilding the index.
+	 */
+	public void writeIndex(String indexFile) 
+	throws IOException {
+		MappedIndex.write(keywordsIndex, indexFile);
+	}
+	
+	/**
+	 * Returns a read-only copy of the keywordsIndex in which documents are numbered and
+	 * occurrence lists are stored as packed primitive arrays.
+	 */
+	public CompactIndex compactIndex() {
+		return new CompactIndex(keywordsIndex);
+	}
+	
+	/**
+	 * Same as compactIndex, with the occurrence lists compressed into blocks if compress is true.
+	 */
+	public CompactIndex compactIndex(boolean compress) {
+		return new CompactIndex(keywordsIndex, compress);
+	}
+	
+	/**
+	 * Loads the noise words in the given file into the noiseWords hash table.
+	 */
+	void loadNoiseWords(String noiseWordsFile) 
+	throws FileNotFoundException {
+		Scanner sc = new Scanner(new File(noiseWordsFile));
+		while (sc.hasNext()) {
+			String word = sc.next();
+			noiseWords.put(word,word);
+		}
+		sc.close();
+		noiseTable = null;
+	}
+	
+	/**
+	 * Returns the noise words as a KeyWordTokenizer hash table, building it if need be.
+	 */
+	String[] noiseTable() {
+		String[] table = noiseTable;
+		if (table == null) {
+			table = KeyWordTokenizer.noiseTable(noiseWords.keySet());
+			noiseTable = table;
+		}
+		return table;
+	}
 
 	/**
 	 * Scans a document, and loads all keywords found into a hash table of keyword occurrences
-	 * in the document. Uses the getKeyWord method to separate keywords from other words.
+	 * in the document. Words are read by this thread's KeyWordTokenizer, which applies the
+	 * same test as the getKeyWord method to separate keywords from other words.
 	 */
 	public HashMap<String,Occurrence> loadKeyWords(String docFile) 
 	throws FileNotFoundException {
 		
 		HashMap<String, Occurrence> keyWords = new HashMap<String,Occurrence>();
 			
-		Scanner sc= new Scanner(new FileReader(docFile));
-		while(sc.hasNext()) {
-			String doc = sc.next();
-			String word = getKeyWord(doc);
-			
-			if(getKeyWord(doc) != null) {
-				if(!keyWords.containsKey(word)) {
-				keyWords.put(word, new Occurrence (docFile, 1));
+		KeyWordTokenizer tokens = tokenizers.get();
+		tokens.reset(new FileInputStream(docFile).getChannel());
+		try {
+			String word;
+			while((word = tokens.nextKeyWord()) != null) {
+				Occurrence occ = keyWords.get(word);
+				if(occ == null) {
+					keyWords.put(word, new Occurrence (docFile, 1));
 				}
 				else {
-					keyWords.get(word).frequency++;
+					occ.frequency++;
 				}
-				
-			}	
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			try {
+				tokens.close();
+			} catch (IOException e) {
+				// nothing more to read, ignore
+			}
 		}
 		return keyWords;
 
@@ -123,6 +250,20 @@ public class LittleSearchEngine {
 	public void mergeKeyWords(HashMap<String,Occurrence> kws) {
 		
 		for(String key : kws.keySet()) {
+			Occurrence occ = kws.get(key);
+			HashMap<String,Occurrence> docKws = documentKeywords.get(occ.document);
+			if(docKws == null) {
+				docKws = new HashMap<String,Occurrence>();
+				documentKeywords.put(occ.document, docKws);
+			}
+			Occurrence old = docKws.put(key, occ);
+			if(old != null && old != occ) {
+				mergedAgain.add(occ.document);
+			}
+			if(cache != null) {
+				cache.invalidate(key);
+			}
+			
 			if(keywordsIndex.containsKey(key)){
 				ArrayList<Occurrence> temp = keywordsIndex.get(key);
 				
@@ -141,6 +282,105 @@ public class LittleSearchEngine {
 		
 	}
 	
+	/**
+	 * Adds a document to the index. Only the occurrence lists of the keywords in the document
+	 * are touched. If the document is already indexed, this is the same as updateDocument.
+	 */
+	public void addDocument(String docFile) 
+	throws FileNotFoundException {
+		if(documentKeywords.containsKey(docFile)) {
+			updateDocument(docFile);
+			return;
+		}
+		mergeKeyWords(loadKeyWords(docFile));
+	}
+	
+	/**
+	 * Removes a document from the index. Its occurrence is taken out of the list of each of its
+	 * keywords (which stays in descending order of frequencies), and keywords that are left
+	 * without occurrences are removed from the index. For each keyword, a binary search on
+	 * frequency finds the run of occurrences with the document's frequency, the occurrence is
+	 * found in that run, and ArrayList.remove closes the gap. (A document merged more than once
+	 * with mergeKeyWords has all its occurrences removed, which takes a scan of each of its
+	 * keywords' lists.) Returns false if the document was not indexed.
+	 */
+	public boolean removeDocument(String docFile) {
+		HashMap<String,Occurrence> docKws = documentKeywords.remove(docFile);
+		if(docKws == null) {
+			return false;
+		}
+		boolean again = mergedAgain.remove(docFile);
+		for(String key : docKws.keySet()) {
+			ArrayList<Occurrence> occs = keywordsIndex.get(key);
+			if(occs == null) {
+				continue;
+			}
+			if(again) {
+				for(Iterator<Occurrence> it = occs.iterator(); it.hasNext(); ) {
+					if(it.next().document.equals(docFile)) {
+						it.remove();
+					}
+				}
+			} else {
+				int i = indexOfOccurrence(occs, docKws.get(key));
+				if(i != -1) {
+					occs.remove(i);
+				}
+			}
+			if(occs.isEmpty()) {
+				keywordsIndex.remove(key);
+			}
+			if(cache != null) {
+				cache.invalidate(key);
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Rescans a document that has changed, and replaces its occurrences in the index with the
+	 * new ones. The index is left unchanged if the document can not be read.
+	 */
+	public void updateDocument(String docFile) 
+	throws FileNotFoundException {
+		HashMap<String,Occurrence> kws = loadKeyWords(docFile);
+		removeDocument(docFile);
+		mergeKeyWords(kws);
+	}
+	
+	/**
+	 * Finds the position of the given occurrence object in an occurrence list. Two binary
+	 * searches on frequency find the run of occurrences with the same frequency, and only that
+	 * run is scanned, comparing references (so the occurrences in it are not read). Returns -1
+	 * if the occurrence is not in the list.
+	 */
+	private static int indexOfOccurrence(ArrayList<Occurrence> occs, Occurrence occ) {
+		int start = occ.frequency == Integer.MAX_VALUE ? 0 : firstBelow(occs, occ.frequency + 1);
+		int end = firstBelow(occs, occ.frequency);
+		for(int i = start; i < end; i++) {
+			if(occs.get(i) == occ) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	// position of the first occurrence with a frequency lower than freq, or size if there is none
+	private static int firstBelow(ArrayList<Occurrence> occs, int freq) {
+		int low = 0;
+		int high = occs.size();
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(occs.get(mid).frequency >= freq) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
 	/**
 	 * Given a word, returns it as a keyword if it passes the keyword test,
 	 * otherwise returns null. A keyword is any word that, after being stripped of any
@@ -176,6 +416,45 @@ public class LittleSearchEngine {
 		
 	}
 	
+	/**
+	 * Normalizes a search keyword the way getKeyWord does: lower cased, with trailing
+	 * punctuation stripped. Returns null if nothing is left. The other keyword tests are
+	 * not applied, since a word that fails them just has no occurrences in the index.
+	 */
+	String normalizeKeyWord(String word) {
+		if(word == null) {
+			return null;
+		}
+		word = word.toLowerCase();
+		int len = word.length();
+		while(len > 0 && ".,?:;!".indexOf(word.charAt(len-1)) != -1) {
+			len--;
+		}
+		return len == 0 ? null : word.substring(0, len);
+	}
+	
+	/**
+	 * Turns on caching of search results, with room for the given number of results.
+	 * Cached results are dropped whenever the occurrences of one of their keywords change.
+	 */
+	public void enableCache(int capacity, QueryCache.Policy policy) {
+		cache = new QueryCache(capacity, policy);
+	}
+	
+	/**
+	 * Turns off caching of search results.
+	 */
+	public void disableCache() {
+		cache = null;
+	}
+	
+	/**
+	 * Returns the search result cache (for its hit, miss and eviction counts), or null if caching is off.
+	 */
+	public QueryCache getCache() {
+		return cache;
+	}
+	
 	/**
 	 * Inserts the last occurrence in the parameter list in the correct position in the
 	 * same list, based on ordering occurrences on descending frequencies. The elements
@@ -233,77 +512,70 @@ public class LittleSearchEngine {
 	 * The result set is limited to 5 entries. If there are no matching documents, the result is null.
 	 */
 	public ArrayList<String> top5search(String kw1, String kw2) {
-		// COMPLETE THIS METHOD
-		// THE FOLLOWING LINE HAS BEEN ADDED TO MAKE THE METHOD COMPILE
-		int x = 0;
-		int y = 0;
-		int count = 0;
-		ArrayList<String> top5result = new ArrayList<String>(5);
-		HashMap<String, Integer> num = new HashMap<String, Integer>();
-		ArrayList<Occurrence> list1 = keywordsIndex.get(kw1);
-		ArrayList<Occurrence> list2 = keywordsIndex.get(kw2);
-
-
-		while(x < list1.size() && y < list2.size()){
-			
-			Occurrence keyWord1  = list1.get(x);
-			Occurrence keyWord2 = list2.get(y);
-			int numCompare = keyWord1.frequency - keyWord2.frequency;
-			
-			//if number of occurrences is the same
-			if(numCompare==0){ 
-				x++; 
-				y++;
-				String string1 = keyWord1.document;
-
-				if(num.containsKey(string1) == false){
-					num.put(string1, keyWord1.frequency);
-					top5result.add(string1); count++;
-				}
-				//if 5 is already in the arraylist, return the list
-				if(count>5){
-					return top5result;
-				}
-				String string2 = keyWord2.document;
-
-				
-				if(num.containsKey(string2) == false){
-					num.put(string2, keyWord2.frequency);
-					top5result.add(string2); count++;
-				}
-				if(count>5){
-					return top5result;
-				}
+		return topK(5, kw1, kw2);
+	}
+	
+	/**
+	 * Search result for "kw1 or kw2 or ...". Same as top5search, but for any number of keywords,
+	 * and with the result set limited to k entries. A document's rank is its highest frequency
+	 * over all the keywords, and ties are broken in favor of the keyword that comes first.
+	 * Keywords are normalized with normalizeKeyWord first. If there are no matching documents,
+	 * the result is null. Results are served from the cache when caching is on.
+	 */
+	public ArrayList<String> topK(int k, String... keywords) {
+		String[] kws = new String[keywords.length];
+		for (int i=0; i < keywords.length; i++) {
+			kws[i] = normalizeKeyWord(keywords[i]);
+		}
+		if (cache != null) {
+			ArrayList<String> cached = cache.get(k, kws);
+			if (cached != null) {
+				return cached.isEmpty() ? null : cached;
 			}
-			//else, if there are more occurrences in list1
-			else if(numCompare > 0){
-				x++;
-				String string1 = keyWord1.document;
-				
-				if(num.containsKey(string1) == false){
-					num.put(string1, keyWord1.frequency);
-					top5result.add(string1); count++;
-				}
-				if(count > 5){
-					return top5result;
-				}
+		}
+		
+		PostingCursor[] cursors = new PostingCursor[kws.length];
+		for (int i=0; i < kws.length; i++) {
+			ArrayList<Occurrence> occs = kws[i] == null ? null : keywordsIndex.get(kws[i]);
+			if (occs != null) {
+				cursors[i] = PostingCursor.over(occs);
 			}
-			//else if there are more occurrences in list2
-			else if(numCompare<0){ y++;
-				String string2 = keyWord2.document;
-				if(num.containsKey(string2)==true){
-
-				}
-				if(num.containsKey(string2) == false){
-					num.put(string2, keyWord2.frequency);
-					top5result.add(string2); count++;
-				}
-				if(count>5){
-					return top5result;
-				}
+		}
+		ArrayList<String> result = topK(k, cursors);
+		if (cache != null) {
+			cache.put(k, kws, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Merges posting lists (null entries are skipped) into the top k distinct documents. The
+	 * heap holds the current posting of each list, so the next posting taken is always the one
+	 * with the highest frequency, earliest list first on ties. The first time a document comes
+	 * off the heap is therefore its final rank, and the merge stops as soon as k documents have
+	 * been found, since no posting left in any list can rank ahead of them. Returns null if
+	 * there are no matching documents.
+	 */
+	static ArrayList<String> topK(int k, PostingCursor[] cursors) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1");
+		}
+		CursorHeap heap = new CursorHeap(cursors);
+		for (int i=0; i < cursors.length; i++) {
+			if (cursors[i] != null && cursors[i].next()) {
+				heap.insert(i);
 			}
 		}
-
-		return top5result;
+		
+		ArrayList<String> result = new ArrayList<String>(Math.min(k, 16));
+		HashSet<String> seen = new HashSet<String>();
+		while (result.size() < k && !heap.isEmpty()) {
+			String doc = cursors[heap.getMin()].document();
+			if (seen.add(doc)) {
+				result.add(doc);
+			}
+			heap.advanceMin();
+		}
+		return result.isEmpty() ? null : result;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,307 @@
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A read-only keyword index that is searched directly off a memory mapped file, without
+ * loading it into a keywordsIndex hash table. The file is written from a keywordsIndex
+ * with the write method, and has the following layout (all ints are big-endian):
+ * <pre>
+ *   header     magic, version, docCount, termCount,
+ *              docsOffset, termsOffset, poolOffset, postingsOffset
+ *   docs       docCount x (name offset in pool, name length)
+ *   terms      termCount x (keyword offset in pool, keyword length, postings offset, postings count),
+ *              sorted on the UTF-8 bytes of the keywords
+ *   pool       UTF-8 bytes of all document names and keywords
+ *   postings   for each keyword, postings count x (docId, frequency), in the same
+ *              descending order of frequencies as the keyword's Occurrence list
+ * </pre>
+ */
+public class MappedIndex {
+
+	static final int MAGIC = 0x4C534549;  // "LSEI"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int DOC_SIZE = 8;
+	static final int TERM_SIZE = 16;
+	static final int POSTING_SIZE = 8;
+
+	/**
+	 * The mapped index file.
+	 */
+	private MappedByteBuffer buf;
+
+	private int docCount, termCount;
+	private int docsOffset, termsOffset;
+
+	private MappedIndex(MappedByteBuffer buf)
+	throws IOException {
+		this.buf = buf;
+		if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+			throw new IOException("Not a keyword index file");
+		}
+		if (buf.getInt(4) != VERSION) {
+			throw new IOException("Unsupported keyword index version " + buf.getInt(4));
+		}
+		docCount = buf.getInt(8);
+		termCount = buf.getInt(12);
+		docsOffset = buf.getInt(16);
+		termsOffset = buf.getInt(20);
+	}
+
+	/**
+	 * Maps the given index file into memory. Nothing but the header is read until a search is done.
+	 */
+	public static MappedIndex open(String indexFile)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(indexFile, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			if (ch.size() > Integer.MAX_VALUE) {
+				throw new IOException("Keyword index file is larger than 2GB");
+			}
+			// the mapping stays valid after the file is closed
+			return new MappedIndex(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes the given keywords index to a file in the mapped index format.
+	 */
+	public static void write(Map<String,? extends List<Occurrence>> keywordsIndex, String indexFile)
+	throws IOException {
+		// sort keywords on their UTF-8 bytes, which is the order searched by lookup
+		byte[][] terms = new byte[keywordsIndex.size()][];
+		HashMap<ByteBuffer,String> keywords = new HashMap<ByteBuffer,String>(terms.length*2);
+		int t = 0;
+		for (String kw : keywordsIndex.keySet()) {
+			terms[t] = kw.getBytes(StandardCharsets.UTF_8);
+			keywords.put(ByteBuffer.wrap(terms[t]), kw);
+			t++;
+		}
+		Arrays.sort(terms, new Comparator<byte[]>() {
+			public int compare(byte[] a, byte[] b) {
+				return compareBytes(a, b);
+			}
+		});
+
+		// number documents in order of first appearance
+		LinkedHashMap<String,Integer> docIds = new LinkedHashMap<String,Integer>();
+		int postings = 0;
+		for (byte[] term : terms) {
+			for (Occurrence occ : keywordsIndex.get(keywords.get(ByteBuffer.wrap(term)))) {
+				if (!docIds.containsKey(occ.document)) {
+					docIds.put(occ.document, docIds.size());
+				}
+				postings++;
+			}
+		}
+
+		ByteArrayOutputStream pool = new ByteArrayOutputStream();
+		int[] docNames = new int[docIds.size()*2];
+		int d = 0;
+		for (String doc : docIds.keySet()) {
+			byte[] b = doc.getBytes(StandardCharsets.UTF_8);
+			docNames[d++] = pool.size();
+			docNames[d++] = b.length;
+			pool.write(b);
+		}
+		int[] termNames = new int[terms.length];
+		for (t=0; t < terms.length; t++) {
+			termNames[t] = pool.size();
+			pool.write(terms[t]);
+		}
+
+		int docsOffset = HEADER_SIZE;
+		int termsOffset = docsOffset + docIds.size()*DOC_SIZE;
+		int poolOffset = termsOffset + terms.length*TERM_SIZE;
+		int postingsOffset = poolOffset + pool.size();
+		if ((long)postingsOffset + (long)postings*POSTING_SIZE > Integer.MAX_VALUE) {
+			throw new IOException("Keyword index does not fit in a 2GB file");
+		}
+
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(indexFile), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(docIds.size());
+			out.writeInt(terms.length);
+			out.writeInt(docsOffset);
+			out.writeInt(termsOffset);
+			out.writeInt(poolOffset);
+			out.writeInt(postingsOffset);
+
+			for (int i=0; i < docNames.length; i += 2) {
+				out.writeInt(poolOffset + docNames[i]);
+				out.writeInt(docNames[i+1]);
+			}
+			int p = postingsOffset;
+			for (t=0; t < terms.length; t++) {
+				int count = keywordsIndex.get(keywords.get(ByteBuffer.wrap(terms[t]))).size();
+				out.writeInt(poolOffset + termNames[t]);
+				out.writeInt(terms[t].length);
+				out.writeInt(p);
+				out.writeInt(count);
+				p += count*POSTING_SIZE;
+			}
+			pool.writeTo(out);
+			for (byte[] term : terms) {
+				for (Occurrence occ : keywordsIndex.get(keywords.get(ByteBuffer.wrap(term)))) {
+					out.writeInt(docIds.get(occ.document));
+					out.writeInt(occ.frequency);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the number of documents in this index.
+	 */
+	public int documentCount() {
+		return docCount;
+	}
+
+	/**
+	 * Returns the number of keywords in this index.
+	 */
+	public int keywordCount() {
+		return termCount;
+	}
+
+	/**
+	 * Returns the name of the document with the given id.
+	 */
+	public String document(int docId) {
+		int e = docsOffset + docId*DOC_SIZE;
+		return string(buf.getInt(e), buf.getInt(e+4));
+	}
+
+	/**
+	 * Returns the occurrences of a keyword, in descending order of frequencies, or null if
+	 * the keyword is not in the index. (This builds Occurrence objects, so it is meant for
+	 * inspection, not for searching.)
+	 */
+	public ArrayList<Occurrence> occurrences(String kw) {
+		int e = lookup(kw);
+		if (e < 0) {
+			return null;
+		}
+		int p = buf.getInt(e+8);
+		int count = buf.getInt(e+12);
+		ArrayList<Occurrence> occs = new ArrayList<Occurrence>(count);
+		for (int i=0; i < count; i++, p += POSTING_SIZE) {
+			occs.add(new Occurrence(document(buf.getInt(p)), buf.getInt(p+4)));
+		}
+		return occs;
+	}
+
+	/**
+	 * Search result for "kw1 or kw2", with the same rules as LittleSearchEngine.top5search:
+	 * descending order of frequencies, each document at most once, ties broken in favor of kw1,
+	 * at most 5 entries, and null if there are no matching documents.
+	 */
+	public ArrayList<String> top5search(String kw1, String kw2) {
+		return topK(5, kw1, kw2);
+	}
+
+	/**
+	 * Search result for any number of keywords, limited to k entries, with the same rules
+	 * as LittleSearchEngine.topK.
+	 */
+	public ArrayList<String> topK(int k, String... keywords) {
+		PostingCursor[] cursors = new PostingCursor[keywords.length];
+		for (int i=0; i < keywords.length; i++) {
+			int e = lookup(keywords[i]);
+			if (e >= 0) {
+				cursors[i] = new Cursor(buf.getInt(e+8), buf.getInt(e+12));
+			}
+		}
+		return LittleSearchEngine.topK(k, cursors);
+	}
+
+	/**
+	 * Cursor over the postings of one keyword in the mapped file.
+	 */
+	private class Cursor extends PostingCursor {
+		private int p, end;
+		Cursor(int offset, int count) {
+			p = offset - POSTING_SIZE;
+			end = offset + count*POSTING_SIZE;
+		}
+		boolean next() {
+			p += POSTING_SIZE;
+			return p < end;
+		}
+		int frequency() {
+			return buf.getInt(p+4);
+		}
+		String document() {
+			return MappedIndex.this.document(buf.getInt(p));
+		}
+	}
+
+	/**
+	 * Binary searches the term table for a keyword. Returns the offset of its entry, or -1.
+	 */
+	int lookup(String kw) {
+		if (kw == null) {
+			return -1;
+		}
+		byte[] key = kw.getBytes(StandardCharsets.UTF_8);
+		int lo = 0, hi = termCount-1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int e = termsOffset + mid*TERM_SIZE;
+			int c = compareTerm(buf.getInt(e), buf.getInt(e+4), key);
+			if (c == 0) {
+				return e;
+			}
+			if (c < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return -1;
+	}
+
+	// compares the len bytes at off in the file with key, as unsigned bytes
+	private int compareTerm(int off, int len, byte[] key) {
+		int n = Math.min(len, key.length);
+		for (int i=0; i < n; i++) {
+			int c = (buf.get(off+i) & 0xff) - (key[i] & 0xff);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return len - key.length;
+	}
+
+	static int compareBytes(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i=0; i < n; i++) {
+			int c = (a[i] & 0xff) - (b[i] & 0xff);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private String string(int off, int len) {
+		byte[] b = new byte[len];
+		for (int i=0; i < len; i++) {
+			b[i] = buf.get(off+i);
+		}
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
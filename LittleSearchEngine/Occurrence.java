@@ -0,0 +1,29 @@
+
+/**
+ * This class encapsulates an occurrence of a keyword in a document. It stores the
+ * document name, and the frequency of occurrence in that document. Occurrences are
+ * associated with keywords in an index hash table.
+ */
+class Occurrence {
+	/**
+	 * Document in which a keyword occurs.
+	 */
+	String document;
+	
+	/**
+	 * The frequency (number of times) the keyword occurs in the above document.
+	 */
+	int frequency;
+	
+	/**
+	 * Initializes this occurrence with the given document,frequency pair.
+	 */
+	public Occurrence(String doc, int freq) {
+		document = doc;
+		frequency = freq;
+	}
+	
+	public String toString() {
+		return "(" + document + "," + frequency + ")";
+	}
+}
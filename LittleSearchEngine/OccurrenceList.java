@@ -0,0 +1,276 @@
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An occurrence list, in descending order of frequencies, for building up many insertions
+ * before the list is read. It reads like an ArrayList (get, size, iteration and toString work
+ * the same), but is stored as a balanced binary tree ordered on position in the list - a treap,
+ * in which every node also knows its parent and the size of its subtree. Getting, inserting or
+ * removing the occurrence at a position takes O(log n) time, where an ArrayList would shift all
+ * the occurrences after it. Each occurrence costs a node of about 40 bytes on top of its list
+ * slot, so this is meant for staging (as ConcurrentSearchEngine.makeIndex does), not for
+ * holding an index.
+ */
+class OccurrenceList extends AbstractList<Occurrence> {
+
+	/**
+	 * A node of the tree, holding one occurrence. Nodes with a higher priority are nearer the
+	 * root, which keeps the tree balanced (with high probability).
+	 */
+	static class Node {
+		Occurrence occ;
+		Node left, right, parent;
+		int size;
+		int priority;
+
+		Node(Occurrence occ, int priority) {
+			this.occ = occ;
+			this.priority = priority;
+			size = 1;
+		}
+	}
+
+	private Node root;
+
+	/**
+	 * State of the xorshift generator of node priorities.
+	 */
+	private int seed;
+
+	/**
+	 * Creates an empty list.
+	 */
+	OccurrenceList() {
+		seed = System.identityHashCode(this) | 1;
+	}
+
+	public int size() {
+		return root == null ? 0 : root.size;
+	}
+
+	public Occurrence get(int index) {
+		return node(index).occ;
+	}
+
+	public Occurrence set(int index, Occurrence occ) {
+		Node node = node(index);
+		Occurrence old = node.occ;
+		node.occ = occ;
+		return old;
+	}
+
+	public void add(int index, Occurrence occ) {
+		insert(index, occ);
+	}
+
+	public Occurrence remove(int index) {
+		Node node = node(index);
+		remove(node);
+		return node.occ;
+	}
+
+	public void clear() {
+		root = null;
+		modCount++;
+	}
+
+	/**
+	 * Inserts an occurrence where LittleSearchEngine.insertLastOccurrence would put it, were it
+	 * appended to this list: the binary search is the same, so the order of occurrences with
+	 * equal frequencies is the same as in an ArrayList built that way. Returns its node.
+	 */
+	Node insertByFrequency(Occurrence occ) {
+		return insert(insertionPoint(this, occ.frequency), occ);
+	}
+
+	/**
+	 * Returns the position at which LittleSearchEngine.insertLastOccurrence would put an
+	 * occurrence of the given frequency appended to occs, which is in descending order of
+	 * frequencies.
+	 */
+	static int insertionPoint(List<Occurrence> occs, int freq) {
+		int n = occs.size();
+		if (n == 0) {
+			return 0;
+		}
+		int low = 0;
+		int high = n-1;
+		while (low < high) {
+			int mid = (low + high)/2;
+			int f = occs.get(mid).frequency;
+			if (f == freq) {
+				low = mid;
+				break;
+			} else if (f > freq) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return freq > occs.get(low).frequency ? low : low+1;
+	}
+
+	/**
+	 * Inserts an occurrence at the given position, and returns its node.
+	 */
+	Node insert(int index, Occurrence occ) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		Node node = new Node(occ, seed);
+		Node[] parts = new Node[2];
+		split(root, index, parts);
+		root = merge(merge(parts[0], node), parts[1]);
+		root.parent = null;
+		modCount++;
+		return node;
+	}
+
+	/**
+	 * Removes the occurrence held by the given node, which must be in this list.
+	 */
+	void remove(Node node) {
+		Node sub = merge(node.left, node.right);
+		Node parent = node.parent;
+		if (sub != null) {
+			sub.parent = parent;
+		}
+		if (parent == null) {
+			root = sub;
+		} else if (parent.left == node) {
+			parent.left = sub;
+		} else {
+			parent.right = sub;
+		}
+		for (; parent != null; parent = parent.parent) {
+			parent.size--;
+		}
+		node.left = node.right = node.parent = null;
+		node.size = 1;
+		modCount++;
+	}
+
+	/**
+	 * Iterates in order, following parent links, so a whole pass takes O(n) time.
+	 */
+	public Iterator<Occurrence> iterator() {
+		return new Iterator<Occurrence>() {
+			Node next = first(root);
+			int expected = modCount;
+
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			public Occurrence next() {
+				if (expected != modCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Node node = next;
+				next = successor(node);
+				return node.occ;
+			}
+		};
+	}
+
+	// node at the given position
+	private Node node(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		Node t = root;
+		for (;;) {
+			int left = size(t.left);
+			if (index < left) {
+				t = t.left;
+			} else if (index == left) {
+				return t;
+			} else {
+				index -= left + 1;
+				t = t.right;
+			}
+		}
+	}
+
+	private static Node first(Node t) {
+		if (t != null) {
+			while (t.left != null) {
+				t = t.left;
+			}
+		}
+		return t;
+	}
+
+	private static Node successor(Node t) {
+		if (t.right != null) {
+			return first(t.right);
+		}
+		while (t.parent != null && t.parent.right == t) {
+			t = t.parent;
+		}
+		return t.parent;
+	}
+
+	private static int size(Node t) {
+		return t == null ? 0 : t.size;
+	}
+
+	/**
+	 * Joins trees a and b, all of whose nodes come before all of b's. Returns the root of the
+	 * result (its parent link is left for the caller to set).
+	 */
+	private static Node merge(Node a, Node b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			a.right.parent = a;
+			a.size = size(a.left) + size(a.right) + 1;
+			return a;
+		}
+		b.left = merge(a, b.left);
+		b.left.parent = b;
+		b.size = size(b.left) + size(b.right) + 1;
+		return b;
+	}
+
+	/**
+	 * Splits tree t into its first k nodes, parts[0], and the rest, parts[1].
+	 */
+	private static void split(Node t, int k, Node[] parts) {
+		if (t == null) {
+			parts[0] = parts[1] = null;
+			return;
+		}
+		if (size(t.left) >= k) {
+			split(t.left, k, parts);
+			t.left = parts[1];
+			if (t.left != null) {
+				t.left.parent = t;
+			}
+			parts[1] = t;
+		} else {
+			split(t.right, k - size(t.left) - 1, parts);
+			t.right = parts[0];
+			if (t.right != null) {
+				t.right.parent = t;
+			}
+			parts[0] = t;
+		}
+		t.size = size(t.left) + size(t.right) + 1;
+		t.parent = null;
+	}
+}
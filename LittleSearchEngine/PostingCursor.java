@@ -0,0 +1,66 @@
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads a posting list (the occurrences of one keyword) one posting at a time, in
+ * descending order of frequencies. A new cursor is positioned before the first posting.
+ */
+abstract class PostingCursor {
+
+	/**
+	 * Moves to the next posting. Returns false if there are no more.
+	 */
+	abstract boolean next();
+
+	/**
+	 * Frequency of the current posting.
+	 */
+	abstract int frequency();
+
+	/**
+	 * Document of the current posting.
+	 */
+	abstract String document();
+
+	/**
+	 * Returns a cursor over an occurrence list of a keywordsIndex.
+	 */
+	static PostingCursor over(final List<Occurrence> occs) {
+		return new PostingCursor() {
+			Iterator<Occurrence> it = occs.iterator();
+			Occurrence occ;
+			boolean next() {
+				if (!it.hasNext()) {
+					return false;
+				}
+				occ = it.next();
+				return true;
+			}
+			int frequency() {
+				return occ.frequency;
+			}
+			String document() {
+				return occ.document;
+			}
+		};
+	}
+
+	/**
+	 * Returns a cursor over an occurrence array.
+	 */
+	static PostingCursor over(final Occurrence[] occs) {
+		return new PostingCursor() {
+			int i = -1;
+			boolean next() {
+				return ++i < occs.length;
+			}
+			int frequency() {
+				return occs[i].frequency;
+			}
+			String document() {
+				return occs[i].document;
+			}
+		};
+	}
+}
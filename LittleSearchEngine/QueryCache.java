@@ -0,0 +1,244 @@
+
+import java.util.*;
+
+/**
+ * A bounded cache of search results, keyed on the (normalized) keywords of a query and the
+ * number of results asked for. Entries are evicted in least recently used order. With the
+ * TINY_LFU policy, a new result is only admitted when the cache is full if its query has been
+ * asked more often than the query of the entry it would evict; query counts are kept in a
+ * small count-min sketch that is halved periodically, so old popularity fades out.
+ * Entries are invalidated by keyword, whenever the occurrence list of a keyword changes.
+ */
+public class QueryCache {
+
+	/**
+	 * Eviction/admission policies.
+	 */
+	public enum Policy { LRU, TINY_LFU }
+
+	/**
+	 * A cached result, and the keywords of its query.
+	 */
+	private static class Entry {
+		ArrayList<String> result;
+		String[] keywords;
+		Entry(ArrayList<String> result, String[] keywords) {
+			this.result = result;
+			this.keywords = keywords;
+		}
+	}
+
+	private int capacity;
+	private Policy policy;
+
+	/**
+	 * Cached entries in access order, eldest first.
+	 */
+	private LinkedHashMap<String,Entry> entries;
+
+	/**
+	 * Hash table from keyword to the keys of all cached queries that use it.
+	 */
+	private HashMap<String,HashSet<String>> keysByKeyword;
+
+	/**
+	 * Count-min sketch of query frequencies (4 rows), and the number of counts added
+	 * since it was last halved.
+	 */
+	private int[] sketch;
+	private int sketchMask;
+	private int samples;
+
+	private long hits, misses, evictions, rejections, invalidations;
+
+	/**
+	 * Creates a cache that holds at most capacity results.
+	 */
+	public QueryCache(int capacity, Policy policy) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be at least 1");
+		}
+		this.capacity = capacity;
+		this.policy = policy;
+		entries = new LinkedHashMap<String,Entry>(16, 0.75f, true);
+		keysByKeyword = new HashMap<String,HashSet<String>>();
+		if (policy == Policy.TINY_LFU) {
+			int width = Integer.highestOneBit(Math.max(16, capacity)*2 - 1);
+			sketch = new int[width*4];
+			sketchMask = width-1;
+		}
+	}
+
+	/**
+	 * Returns the cached result of a query, or null on a miss. A cached empty result (no
+	 * matching documents) is returned as an empty list. The caller gets its own copy.
+	 */
+	public synchronized ArrayList<String> get(int k, String[] keywords) {
+		String key = key(k, keywords);
+		record(key);
+		Entry e = entries.get(key);
+		if (e == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return new ArrayList<String>(e.result);
+	}
+
+	/**
+	 * Caches the result of a query (null for no matching documents), unless the admission
+	 * policy turns it down.
+	 */
+	public synchronized void put(int k, String[] keywords, ArrayList<String> result) {
+		String key = key(k, keywords);
+		if (entries.containsKey(key)) {
+			return;
+		}
+		if (entries.size() >= capacity) {
+			Map.Entry<String,Entry> eldest = entries.entrySet().iterator().next();
+			if (policy == Policy.TINY_LFU && frequency(key) <= frequency(eldest.getKey())) {
+				rejections++;
+				return;
+			}
+			remove(eldest.getKey());
+			evictions++;
+		}
+		keywords = keywords.clone();
+		entries.put(key, new Entry(result == null ? new ArrayList<String>() : new ArrayList<String>(result), keywords));
+		for (String kw : keywords) {
+			if (kw == null) {
+				continue;
+			}
+			HashSet<String> keys = keysByKeyword.get(kw);
+			if (keys == null) {
+				keys = new HashSet<String>();
+				keysByKeyword.put(kw, keys);
+			}
+			keys.add(key);
+		}
+	}
+
+	/**
+	 * Drops all cached results of queries that use the given keyword.
+	 */
+	public synchronized void invalidate(String keyword) {
+		HashSet<String> keys = keysByKeyword.get(keyword);
+		if (keys == null) {
+			return;
+		}
+		for (String key : new ArrayList<String>(keys)) {
+			remove(key);
+			invalidations++;
+		}
+	}
+
+	/**
+	 * Drops all cached results.
+	 */
+	public synchronized void clear() {
+		invalidations += entries.size();
+		entries.clear();
+		keysByKeyword.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of results turned down by the TINY_LFU admission policy.
+	 */
+	public synchronized long getRejections() {
+		return rejections;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	public synchronized String toString() {
+		return "QueryCache(" + policy + ", " + entries.size() + "/" + capacity + ", hits=" + hits +
+				", misses=" + misses + ", evictions=" + evictions + ", rejections=" + rejections +
+				", invalidations=" + invalidations + ")";
+	}
+
+	private void remove(String key) {
+		Entry e = entries.remove(key);
+		if (e == null) {
+			return;
+		}
+		for (String kw : e.keywords) {
+			HashSet<String> keys = kw == null ? null : keysByKeyword.get(kw);
+			if (keys != null) {
+				keys.remove(key);
+				if (keys.isEmpty()) {
+					keysByKeyword.remove(kw);
+				}
+			}
+		}
+	}
+
+	// k, then each keyword as its length, ':' and its chars (or '-' for null); a keyword may
+	// hold any chars, so the lengths are what keep the keys of different queries apart
+	private static String key(int k, String[] keywords) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(k).append(':');
+		for (String kw : keywords) {
+			if (kw == null) {
+				sb.append('-');
+			} else {
+				sb.append(kw.length()).append(':').append(kw);
+			}
+		}
+		return sb.toString();
+	}
+
+	// counts one more use of a query in the sketch (4 bit counters, as in TinyLFU)
+	private void record(String key) {
+		if (sketch == null) {
+			return;
+		}
+		int h = key.hashCode();
+		for (int row=0; row < 4; row++) {
+			int i = row*(sketchMask+1) + (hash(h, row) & sketchMask);
+			if (sketch[i] < 15) {
+				sketch[i]++;
+			}
+		}
+		if (++samples >= capacity*10) {
+			for (int i=0; i < sketch.length; i++) {
+				sketch[i] >>>= 1;
+			}
+			samples /= 2;
+		}
+	}
+
+	// estimated number of uses of a query
+	private int frequency(String key) {
+		int h = key.hashCode();
+		int min = Integer.MAX_VALUE;
+		for (int row=0; row < 4; row++) {
+			min = Math.min(min, sketch[row*(sketchMask+1) + (hash(h, row) & sketchMask)]);
+		}
+		return min;
+	}
+
+	private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+	private static int hash(int h, int row) {
+		h *= SEEDS[row];
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,257 @@
+package structures;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Computes a minimum spanning tree (a forest, if the graph is not connected) with Boruvka's
+ * algorithm, in parallel. Each round, every component finds its cheapest arc to another
+ * component, and all those arcs are added at once, contracting the components they join;
+ * the number of components at least halves each round. Arcs are ordered on (weight, lower
+ * vertex number, higher vertex number), so there are no ties, the minimum spanning tree is
+ * unique, and the result does not depend on the number of threads or their timing.
+ * <p>
+ * A round has three parallel passes over the vertices, split into ranges with fork/join:
+ * each vertex finds its own cheapest outgoing arc; each component takes the best of its
+ * vertices' arcs (a compare-and-set on the component's slot); and each component's arc is
+ * added with a union in a concurrent union-find, which only links a root under a lower
+ * numbered root, so the root of a component is always its lowest numbered vertex.
+ */
+public class Boruvka {
+
+	/**
+	 * Number of vertices a task handles without splitting.
+	 */
+	static final int GRAIN = 4096;
+
+	private CsrGraph graph;
+	private int n;
+
+	/**
+	 * Concurrent union-find: parent of each vertex, a root is its own parent.
+	 */
+	private AtomicIntegerArray parent;
+
+	/**
+	 * Component (root) of each vertex, as of the start of the round.
+	 */
+	private int[] comp;
+
+	/**
+	 * Cheapest arc out of each vertex's component that starts at the vertex: the other end,
+	 * or -1 if there is none, and its weight.
+	 */
+	private int[] bestTo, bestWeight;
+
+	/**
+	 * Vertex whose arc is the cheapest out of each component (indexed by root), or -1.
+	 */
+	private AtomicIntegerArray compBest;
+
+	/**
+	 * Tells, for each root, if its component's arc joined two components this round.
+	 */
+	private boolean[] added;
+
+	private Boruvka(CsrGraph graph) {
+		this.graph = graph;
+		n = graph.vertices.length;
+		parent = new AtomicIntegerArray(n);
+		comp = new int[n];
+		for (int v=0; v < n; v++) {
+			parent.set(v, v);
+			comp[v] = v;
+		}
+		bestTo = new int[n];
+		bestWeight = new int[n];
+		compBest = new AtomicIntegerArray(n);
+		added = new boolean[n];
+	}
+
+	/**
+	 * Runs the algorithm with the given number of threads. The graph is first copied to a
+	 * CsrGraph, whose arcs are scanned much faster than linked lists.
+	 */
+	public static ArrayList<PartialTree.Arc> execute(Graph graph, int threads) {
+		if (graph == null) {
+			return null;
+		}
+		return execute(new CsrGraph(graph), threads);
+	}
+
+	/**
+	 * Runs the algorithm with the given number of threads.
+	 */
+	public static ArrayList<PartialTree.Arc> execute(CsrGraph graph, int threads) {
+		if (graph == null) {
+			return null;
+		}
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		try {
+			return new Boruvka(graph).run(pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private ArrayList<PartialTree.Arc> run(ForkJoinPool pool) {
+		ArrayList<PartialTree.Arc> mst = new ArrayList<PartialTree.Arc>();
+		for (;;) {
+			pool.invoke(new Pass(0, n, FIND_ARCS));
+			pool.invoke(new Pass(0, n, PICK_ARCS));
+			pool.invoke(new Pass(0, n, ADD_ARCS));
+
+			// collect the added arcs in vertex order, so the result is the same every time
+			int before = mst.size();
+			for (int c=0; c < n; c++) {
+				if (added[c]) {
+					int v = compBest.get(c);
+					mst.add(new PartialTree.Arc(graph.vertices[v], graph.vertices[bestTo[v]], bestWeight[v]));
+				}
+			}
+			if (mst.size() == before) {
+				return mst;
+			}
+			pool.invoke(new Pass(0, n, RELABEL));
+		}
+	}
+
+	static final int FIND_ARCS = 0, PICK_ARCS = 1, ADD_ARCS = 2, RELABEL = 3;
+
+	/**
+	 * One pass of a round over the vertices lo..hi-1.
+	 */
+	private class Pass extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int lo, hi, step;
+
+		Pass(int lo, int hi, int step) {
+			this.lo = lo;
+			this.hi = hi;
+			this.step = step;
+		}
+
+		protected void compute() {
+			if (hi - lo > GRAIN) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new Pass(lo, mid, step), new Pass(mid, hi, step));
+				return;
+			}
+			for (int v=lo; v < hi; v++) {
+				switch (step) {
+				case FIND_ARCS: findArc(v); break;
+				case PICK_ARCS: pickArc(v); break;
+				case ADD_ARCS: addArc(v); break;
+				default: comp[v] = find(v);
+				}
+			}
+		}
+	}
+
+	// finds the cheapest arc from v to another component
+	private void findArc(int v) {
+		int c = comp[v];
+		int to = -1, weight = 0;
+		int[] targets = graph.targets, weights = graph.weights;
+		for (int a=graph.offsets[v], end=graph.offsets[v+1]; a < end; a++) {
+			int u = targets[a];
+			if (comp[u] != c && (to < 0 || less(weights[a], v, u, weight, v, to))) {
+				to = u;
+				weight = weights[a];
+			}
+		}
+		bestTo[v] = to;
+		bestWeight[v] = weight;
+		// clear the slots the next two passes fill
+		compBest.set(v, -1);
+		added[v] = false;
+	}
+
+	// offers v's arc as the cheapest out of its component
+	private void pickArc(int v) {
+		if (bestTo[v] < 0) {
+			return;
+		}
+		int c = comp[v];
+		for (;;) {
+			int w = compBest.get(c);
+			if (w >= 0 && !less(bestWeight[v], v, bestTo[v], bestWeight[w], w, bestTo[w])) {
+				return;
+			}
+			if (compBest.compareAndSet(c, w, v)) {
+				return;
+			}
+		}
+	}
+
+	// adds the cheapest arc out of the component rooted at c, if c is a root with one
+	private void addArc(int c) {
+		if (comp[c] != c || compBest.get(c) < 0) {
+			return;
+		}
+		int v = compBest.get(c);
+		int u = bestTo[v], d = comp[u];
+		// two components may pick the same arc: then the lower numbered one adds it
+		if (d < c && compBest.get(d) == u && bestTo[u] == v) {
+			return;
+		}
+		added[c] = union(v, u);
+	}
+
+	/**
+	 * Tells if arc (v1, u1) of weight w1 comes before arc (v2, u2) of weight w2, on weight,
+	 * then lower end, then higher end.
+	 */
+	static boolean less(int w1, int v1, int u1, int w2, int v2, int u2) {
+		if (w1 != w2) {
+			return w1 < w2;
+		}
+		int lo1 = Math.min(v1, u1), lo2 = Math.min(v2, u2);
+		if (lo1 != lo2) {
+			return lo1 < lo2;
+		}
+		return Math.max(v1, u1) < Math.max(v2, u2);
+	}
+
+	/**
+	 * Returns the root of x's set, halving the path on the way (with compare-and-set, so that
+	 * concurrent finds and unions never lose a link).
+	 */
+	private int find(int x) {
+		for (;;) {
+			int p = parent.get(x);
+			if (p == x) {
+				return x;
+			}
+			int g = parent.get(p);
+			if (g != p) {
+				parent.compareAndSet(x, p, g);
+			}
+			x = g;
+		}
+	}
+
+	/**
+	 * Joins the sets of a and b, linking the higher numbered root under the lower one. Returns
+	 * false if they were already one set.
+	 */
+	private boolean union(int a, int b) {
+		for (;;) {
+			int ra = find(a), rb = find(b);
+			if (ra == rb) {
+				return false;
+			}
+			if (ra > rb) {
+				int t = ra;
+				ra = rb;
+				rb = t;
+			}
+			// fails if rb stopped being a root meanwhile; then look again
+			if (parent.compareAndSet(rb, rb, ra)) {
+				return true;
+			}
+		}
+	}
+}
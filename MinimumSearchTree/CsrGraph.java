@@ -0,0 +1,396 @@
+package structures;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A weighted, undirected graph, stored in compressed sparse row format: the arcs out of
+ * vertex v are the slots offsets[v] .. offsets[v+1]-1 of the targets and weights arrays.
+ * Each undirected edge is stored as two arcs, one in each direction, so an edge costs 16
+ * bytes and no objects, and the arcs of a vertex are next to each other in memory.
+ * <p>
+ * The arcs of a vertex are walked with no allocation:
+ * <pre>
+ *     for (int a=graph.firstArc(v); a < graph.endArc(v); a++) {
+ *         ... graph.target(a) ... graph.weight(a) ...
+ *     }
+ * </pre>
+ * The arcs of each vertex are in the same order as its neighbors in a Graph read from the
+ * same file (last edge in the file first), so algorithms give the same results on both.
+ * <p>
+ * A CsrGraph can also be written to a binary file, and loaded back from it without any
+ * parsing: the arrays are copied straight out of the memory mapped file. The binary file
+ * holds, as little-endian ints (the byte order of most machines, so the copies are plain
+ * memory copies):
+ * <pre>
+ *   header     magic, version, vertex count n, arc count, name pool size, 3 x reserved
+ *   offsets    n+1 ints
+ *   targets    arc count ints
+ *   weights    arc count ints
+ *   names      n+1 offsets into the pool (name v ends where name v+1 starts)
+ *   pool       UTF-8 bytes of the vertex names
+ * </pre>
+ */
+public class CsrGraph {
+
+	static final int MAGIC = 0x47525343;  // "CSRG"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+
+	/**
+	 * Largest part of a file mapped at once.
+	 */
+	static final int WINDOW = 1 << 30;
+
+	/**
+	 * Vertices of the graph, by number. They hold the names, and are the ends of the arcs
+	 * that MST algorithms return; their neighbor lists are not used (and are empty, unless
+	 * they are the vertices of a Graph this was built from).
+	 */
+	public Vertex[] vertices;
+
+	/**
+	 * Hash map of vertex name -> vertex number mappings
+	 */
+	HashMap<String,Integer> vertmap;
+
+	/**
+	 * Start of the arcs of each vertex in targets and weights, and their end for the last
+	 * vertex: offsets[v+1] - offsets[v] is the degree of v.
+	 */
+	int[] offsets;
+
+	/**
+	 * Vertex number at the other end of each arc.
+	 */
+	int[] targets;
+
+	/**
+	 * Weight of each arc.
+	 */
+	int[] weights;
+
+	/**
+	 * Constructs a graph out of a plain text description in an input file, in the same
+	 * format Graph reads. The edges are parsed on all available processors if the file is
+	 * large; see GraphReader.
+	 */
+	public CsrGraph(String file)
+	throws IOException {
+		this(file, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a graph out of a plain text description in an input file, parsing the
+	 * edges with up to the given number of threads.
+	 */
+	public CsrGraph(String file, int threads)
+	throws IOException {
+		GraphReader reader = GraphReader.read(file, threads);
+		vertices = reader.vertices;
+		vertmap = reader.vertmap;
+		build(vertices.length, reader.from, reader.to, reader.wt, reader.m);
+	}
+
+	/**
+	 * Constructs a compressed copy of a graph. The copy shares the graph's vertices, so arcs
+	 * computed on it are made of the graph's own vertices.
+	 */
+	public CsrGraph(Graph graph) {
+		vertices = graph.vertices;
+		vertmap = graph.vertmap;
+		int n = vertices.length;
+		offsets = new int[n+1];
+		long arcs = 0;
+		for (int v=0; v < n; v++) {
+			for (Vertex.Neighbor nbr = vertices[v].neighbors; nbr != null; nbr = nbr.next) {
+				arcs++;
+			}
+			offsets[v+1] = checkArcs(arcs);
+		}
+		targets = new int[(int)arcs];
+		weights = new int[(int)arcs];
+		int a = 0;
+		for (int v=0; v < n; v++) {
+			for (Vertex.Neighbor nbr = vertices[v].neighbors; nbr != null; nbr = nbr.next) {
+				targets[a] = nbr.vertex.id;
+				weights[a] = nbr.weight;
+				a++;
+			}
+		}
+	}
+
+	// lays out the m edges from[i] - to[i] of weight wt[i] as arcs in both directions
+	private void build(int n, int[] from, int[] to, int[] wt, int m) {
+		// count the degrees, then turn them into offsets
+		offsets = new int[n+1];
+		for (int i=0; i < m; i++) {
+			offsets[from[i]+1]++;
+			offsets[to[i]+1]++;
+		}
+		long arcs = 0;
+		for (int v=0; v < n; v++) {
+			arcs += offsets[v+1];
+			offsets[v+1] = checkArcs(arcs);
+		}
+		targets = new int[(int)arcs];
+		weights = new int[(int)arcs];
+
+		// fill each vertex's slots from the back, so the last edge read comes first, as in
+		// Graph's linked lists
+		int[] fill = Arrays.copyOfRange(offsets, 1, n+1);
+		for (int i=0; i < m; i++) {
+			int a = --fill[from[i]];
+			targets[a] = to[i];
+			weights[a] = wt[i];
+			a = --fill[to[i]];
+			targets[a] = from[i];
+			weights[a] = wt[i];
+		}
+	}
+
+	private CsrGraph() {
+	}
+
+	/**
+	 * Writes this graph to a file in the binary format, for load.
+	 */
+	public void write(String file)
+	throws IOException {
+		int n = vertices.length;
+		byte[][] names = new byte[n][];
+		int[] nameStart = new int[n+1];
+		long pool = 0;
+		for (int v=0; v < n; v++) {
+			names[v] = vertices[v].name.getBytes(StandardCharsets.UTF_8);
+			pool += names[v].length;
+			if (pool > Integer.MAX_VALUE) {
+				throw new IOException("Vertex names take more than 2GB");
+			}
+			nameStart[v+1] = (int)pool;
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			FileChannel ch = raf.getChannel();
+			ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+			buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(targets.length).putInt((int)pool);
+			buf.putInt(0).putInt(0).putInt(0);
+			putInts(ch, buf, offsets);
+			putInts(ch, buf, targets);
+			putInts(ch, buf, weights);
+			putInts(ch, buf, nameStart);
+			for (byte[] name : names) {
+				if (buf.remaining() < name.length) {
+					flush(ch, buf);
+				}
+				if (buf.remaining() < name.length) {
+					ch.write(ByteBuffer.wrap(name));
+				} else {
+					buf.put(name);
+				}
+			}
+			flush(ch, buf);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private static void putInts(FileChannel ch, ByteBuffer buf, int[] values)
+	throws IOException {
+		for (int i=0; i < values.length; ) {
+			if (buf.remaining() < 4) {
+				flush(ch, buf);
+			}
+			int count = Math.min(values.length - i, buf.remaining() / 4);
+			buf.asIntBuffer().put(values, i, count);
+			buf.position(buf.position() + count*4);
+			i += count;
+		}
+	}
+
+	private static void flush(FileChannel ch, ByteBuffer buf)
+	throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+	 * Loads a graph from a file written by write. The file is memory mapped, and the arrays
+	 * are bulk copied out of it, so loading runs at the speed of the disk (or of memory, if
+	 * the file is in the page cache). The graph does not use the mapped file itself: its
+	 * offsets, targets and weights are ordinary int arrays on the heap, so loading needs
+	 * heap for the whole graph and takes time in its size, and the file can be closed or
+	 * changed afterwards without affecting the graph.
+	 */
+	public static CsrGraph load(String file)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			long size = ch.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException("Not a CSR graph file");
+			}
+			IntBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			if (header.get(0) != MAGIC) {
+				throw new IOException("Not a CSR graph file");
+			}
+			if (header.get(1) != VERSION) {
+				throw new IOException("Unsupported CSR graph file version " + header.get(1));
+			}
+			int n = header.get(2), arcs = header.get(3), pool = header.get(4);
+			if (n < 0 || arcs < 0 || pool < 0
+					|| size != HEADER_SIZE + 4L*(n+1) + 8L*arcs + 4L*(n+1) + pool) {
+				throw new IOException("CSR graph file is damaged");
+			}
+
+			CsrGraph graph = new CsrGraph();
+			long pos = HEADER_SIZE;
+			graph.offsets = new int[n+1];
+			pos = getInts(ch, pos, graph.offsets);
+			graph.targets = new int[arcs];
+			pos = getInts(ch, pos, graph.targets);
+			graph.weights = new int[arcs];
+			pos = getInts(ch, pos, graph.weights);
+			int[] nameStart = new int[n+1];
+			pos = getInts(ch, pos, nameStart);
+			for (int v=0; v < n; v++) {
+				if (graph.offsets[v] > graph.offsets[v+1] || nameStart[v] > nameStart[v+1]) {
+					throw new IOException("CSR graph file is damaged");
+				}
+			}
+			if (graph.offsets[0] != 0 || graph.offsets[n] != arcs || nameStart[0] != 0 || nameStart[n] != pool) {
+				throw new IOException("CSR graph file is damaged");
+			}
+
+			byte[] bytes = new byte[pool];
+			for (int i=0; i < pool; i += WINDOW) {
+				int len = Math.min(WINDOW, pool - i);
+				ch.map(FileChannel.MapMode.READ_ONLY, pos + i, len).get(bytes, i, len);
+			}
+			graph.vertices = new Vertex[n];
+			graph.vertmap = new HashMap<String,Integer>(n,2f);
+			for (int v=0; v < n; v++) {
+				Vertex vertex = new Vertex(new String(bytes, nameStart[v], nameStart[v+1] - nameStart[v], StandardCharsets.UTF_8));
+				vertex.id = v;
+				graph.vertices[v] = vertex;
+				graph.vertmap.put(vertex.name, v);
+			}
+			return graph;
+		} finally {
+			raf.close();
+		}
+	}
+
+	// copies values.length ints out of the file at pos, a window at a time; returns the end
+	private static long getInts(FileChannel ch, long pos, int[] values)
+	throws IOException {
+		int per = WINDOW / 4;
+		for (int i=0; i < values.length; i += per) {
+			int count = Math.min(per, values.length - i);
+			ch.map(FileChannel.MapMode.READ_ONLY, pos, 4L*count)
+					.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, i, count);
+			pos += 4L*count;
+		}
+		return pos;
+	}
+
+	private static int checkArcs(long arcs) {
+		if (arcs > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Graph has more than 2^31 arcs");
+		}
+		return (int)arcs;
+	}
+
+	/**
+	 * Returns the number of vertices.
+	 */
+	public int vertexCount() {
+		return vertices.length;
+	}
+
+	/**
+	 * Returns the number of (undirected) edges.
+	 */
+	public int edgeCount() {
+		return targets.length / 2;
+	}
+
+	/**
+	 * Returns the number of the vertex with the given name, or -1 if there is none.
+	 */
+	public int vertexNumber(String name) {
+		Integer v = vertmap.get(name);
+		return v == null ? -1 : v;
+	}
+
+	/**
+	 * Returns the name of vertex v.
+	 */
+	public String name(int v) {
+		return vertices[v].name;
+	}
+
+	/**
+	 * Returns the number of arcs out of vertex v.
+	 */
+	public int degree(int v) {
+		return offsets[v+1] - offsets[v];
+	}
+
+	/**
+	 * Returns the first arc out of vertex v.
+	 */
+	public int firstArc(int v) {
+		return offsets[v];
+	}
+
+	/**
+	 * Returns the end of the arcs out of vertex v: one past its last arc.
+	 */
+	public int endArc(int v) {
+		return offsets[v+1];
+	}
+
+	/**
+	 * Returns the vertex number at the other end of arc a.
+	 */
+	public int target(int a) {
+		return targets[a];
+	}
+
+	/**
+	 * Returns the weight of arc a.
+	 */
+	public int weight(int a) {
+		return weights[a];
+	}
+
+	/**
+	 * Prints this graph, in the format Graph.print uses
+	 */
+	public void print() {
+		System.out.println(vertices.length);
+		for (int i=0; i < vertices.length; i++) {
+			System.out.println(vertices[i].name);
+		}
+		for (int v=0; v < vertices.length; v++) {
+			for (int a=offsets[v]; a < offsets[v+1]; a++) {
+				System.out.println(vertices[v].name + " " + vertices[targets[a]].name + " " + weights[a]);
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package structures;
+
+/**
+ * Disjoint sets (union-find) over the elements 0..n-1, in int arrays. find compresses
+ * paths, and union hangs the smaller set under the larger, so a sequence of m operations
+ * takes O(m * alpha(n)) time: all but constant.
+ */
+public class DisjointSets {
+
+	/**
+	 * Parent of each element; a root is its own parent.
+	 */
+	private int[] parent;
+
+	/**
+	 * Number of elements in the set of each root (meaningless for other elements).
+	 */
+	private int[] size;
+
+	/**
+	 * Number of sets.
+	 */
+	private int count;
+
+	/**
+	 * Initializes n sets, each holding one element.
+	 */
+	public DisjointSets(int n) {
+		parent = new int[n];
+		size = new int[n];
+		for (int i=0; i < n; i++) {
+			parent[i] = i;
+			size[i] = 1;
+		}
+		count = n;
+	}
+
+	/**
+	 * Returns the root of the set holding element x, pointing every element on the way
+	 * straight at it.
+	 */
+	public int find(int x) {
+		int root = x;
+		while (parent[root] != root) {
+			root = parent[root];
+		}
+		while (parent[x] != root) {
+			int next = parent[x];
+			parent[x] = root;
+			x = next;
+		}
+		return root;
+	}
+
+	/**
+	 * Merges the sets holding elements a and b, and returns the root of the merged set. The
+	 * root of the larger set stays the root (a's, if they are the same size). If a and b are
+	 * already in the same set, just returns its root.
+	 */
+	public int union(int a, int b) {
+		int ra = find(a), rb = find(b);
+		if (ra == rb) {
+			return ra;
+		}
+		if (size[ra] < size[rb]) {
+			int t = ra;
+			ra = rb;
+			rb = t;
+		}
+		parent[rb] = ra;
+		size[ra] += size[rb];
+		count--;
+		return ra;
+	}
+
+	/**
+	 * Tells if elements a and b are in the same set.
+	 */
+	public boolean connected(int a, int b) {
+		return find(a) == find(b);
+	}
+
+	/**
+	 * Returns the number of elements in the set holding element x.
+	 */
+	public int size(int x) {
+		return size[find(x)];
+	}
+
+	/**
+	 * Returns the number of sets.
+	 */
+	public int count() {
+		return count;
+	}
+}
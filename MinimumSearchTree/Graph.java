@@ -1,6 +1,5 @@
 package structures;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -20,37 +19,60 @@ public class Graph {
     HashMap<String,Integer> vertmap;
 
     /**
-     * Constructs a graph out of a plain text description in an input file.
+     * Partial trees of the vertices, as disjoint sets of vertex numbers.
+     */
+    DisjointSets sets;
+
+    /**
+     * Constructs a graph out of a plain text description in an input file. The edges are
+     * parsed on all available processors if the file is large; see GraphReader.
      */
     public Graph(String file) 
     throws IOException {
-    	Scanner sc = new Scanner(new File(file));
-    	// first line is number of vertices
-    	vertices = new Vertex[sc.nextInt()];
-    	vertmap = new HashMap<String,Integer>(vertices.length,2f);
-    	// add all vertices
-    	for (int v=0; v < vertices.length; v++) {
-    		vertices[v] = new Vertex(sc.next());
-    		vertmap.put(vertices[v].name, v);
+    	this(file, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a graph out of a plain text description in an input file, parsing the
+     * edges with up to the given number of threads.
+     */
+    public Graph(String file, int threads) 
+    throws IOException {
+    	GraphReader reader = GraphReader.read(file, threads);
+    	vertices = reader.vertices;
+    	vertmap = reader.vertmap;
+    	for (Vertex v : vertices) {
+    		v.graph = this;
     	}
+    	sets = new DisjointSets(vertices.length);
     	
     	// add edges
-    	while (sc.hasNext()) {
-    		Vertex vx1 = vertices[vertmap.get(sc.next())];
-    		Vertex vx2 = vertices[vertmap.get(sc.next())];
-    		int wt = sc.nextInt();
+    	int[] from = reader.from, to = reader.to, wt = reader.wt;
+    	for (int i=0; i < reader.m; i++) {
+    		Vertex vx1 = vertices[from[i]];
+    		Vertex vx2 = vertices[to[i]];
     		
     		// add vx2 to vx1's list
-    		Vertex.Neighbor nbr = new Vertex.Neighbor(vx2,wt);
+    		Vertex.Neighbor nbr = new Vertex.Neighbor(vx2,wt[i]);
     		nbr.next = vx1.neighbors;
     		vx1.neighbors = nbr;
     		// add vx1 to vx2's list
-    		nbr = new Vertex.Neighbor(vx1,wt);
+    		nbr = new Vertex.Neighbor(vx1,wt[i]);
     		nbr.next = vx2.neighbors;
     		vx2.neighbors = nbr;
     	}
     }
     
+    /**
+     * Makes every vertex its own partial tree again.
+     */
+    public void resetPartialTrees() {
+    	sets = new DisjointSets(vertices.length);
+    	for (Vertex v : vertices) {
+    		v.parent = v;
+    	}
+    }
+
     /**
      * Prints this graph
      */
@@ -0,0 +1,449 @@
+package structures;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a graph file in the plain text format (number of vertices, vertex names, then one
+ * "name name weight" edge per line) into an edge list. The file is read as raw bytes with
+ * positional reads on a FileChannel, and split into whitespace separated tokens in place;
+ * edge endpoints are looked up in a hash table over the UTF-8 bytes of the names, so no
+ * String is made for them.
+ * <p>
+ * The edges can be parsed by several threads: the part of the file after the names is cut
+ * into chunks at line breaks, each chunk is parsed into its own arrays, and the arrays are
+ * joined in file order. This needs every chunk to hold whole edges. The first chunk starts
+ * at an edge, so if each chunk ends on a complete "name name weight" triple, each one starts
+ * at an edge too. A chunk that does not (an edge is split across lines, or the file is bad)
+ * fails to parse, and the edges are then parsed again by one thread, which accepts any
+ * whitespace between tokens and reports errors at the right place. So the edge list, or the
+ * error, is the same for any number of threads.
+ */
+class GraphReader {
+
+	/**
+	 * Smallest chunk of edges worth a thread of its own.
+	 */
+	static final int MIN_CHUNK = 1 << 20;
+
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Vertices, in file order, with their numbers set.
+	 */
+	Vertex[] vertices;
+
+	/**
+	 * Hash map of vertex name -> vertex number mappings
+	 */
+	HashMap<String,Integer> vertmap;
+
+	/**
+	 * Edge list: m edges from[i] - to[i] of weight wt[i].
+	 */
+	int[] from, to, wt;
+	int m;
+
+	/**
+	 * UTF-8 bytes of each vertex name, and an open addressing hash table on them of vertex
+	 * number + 1 (0 is an empty slot).
+	 */
+	private byte[][] names;
+	private int[] table;
+
+	private FileChannel ch;
+
+	/**
+	 * Reads the given graph file, parsing the edges with up to the given number of threads.
+	 */
+	static GraphReader read(String file, int threads)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			GraphReader reader = new GraphReader();
+			reader.ch = raf.getChannel();
+			reader.parse(Math.max(1, threads));
+			reader.ch = null;
+			return reader;
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void parse(int threads)
+	throws IOException {
+		long size = ch.size();
+		Lexer lex = new Lexer(0, size);
+		// first line is number of vertices
+		if (!lex.token()) {
+			throw new IOException("Graph file is empty");
+		}
+		int n = lex.intToken();
+		if (n < 0) {
+			throw new IOException("Negative number of vertices");
+		}
+		vertices = new Vertex[n];
+		vertmap = new HashMap<String,Integer>(n,2f);
+		names = new byte[n][];
+		table = new int[Integer.highestOneBit(Math.max(n, 2) * 2 - 1) * 2];
+		for (int v=0; v < n; v++) {
+			if (!lex.token()) {
+				throw new IOException("Graph file ends after " + v + " of " + n + " vertex names");
+			}
+			names[v] = Arrays.copyOfRange(lex.buf, lex.pos, lex.end);
+			vertices[v] = new Vertex(new String(names[v], StandardCharsets.UTF_8));
+			vertices[v].id = v;
+			vertmap.put(vertices[v].name, v);
+			addName(v);
+		}
+
+		// edges start right after the last name
+		long start = lex.position();
+		int chunks = (int)Math.max(1, Math.min(threads, (size - start) / MIN_CHUNK));
+		if (chunks == 1) {
+			lex.edges();
+			from = lex.from;
+			to = lex.to;
+			wt = lex.wt;
+			m = lex.m;
+			return;
+		}
+
+		// cut at the line break after each even split point
+		long[] bounds = new long[chunks+1];
+		bounds[0] = start;
+		bounds[chunks] = size;
+		for (int i=1; i < chunks; i++) {
+			bounds[i] = Math.max(bounds[i-1], lineStart(start + (size - start) * i / chunks));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(chunks);
+		try {
+			ArrayList<Future<Lexer>> parts = new ArrayList<Future<Lexer>>(chunks);
+			for (int i=0; i < chunks; i++) {
+				final Lexer part = new Lexer(bounds[i], bounds[i+1]);
+				parts.add(pool.submit(new Callable<Lexer>() {
+					public Lexer call()
+					throws IOException {
+						part.edges();
+						return part;
+					}
+				}));
+			}
+			// wait for all the chunks (interrupting one at a read would close the channel)
+			Lexer[] done = new Lexer[chunks];
+			long total = 0;
+			boolean whole = true;
+			for (int i=0; i < chunks; i++) {
+				try {
+					done[i] = waitFor(parts.get(i));
+					total += done[i].m;
+				} catch (IOException e) {
+					whole = false;
+				}
+			}
+			if (!whole) {
+				lex = new Lexer(start, size);
+				lex.edges();
+				from = lex.from;
+				to = lex.to;
+				wt = lex.wt;
+				m = lex.m;
+				return;
+			}
+			if (total > Integer.MAX_VALUE - 8) {
+				throw new IOException("Graph has more than 2^31 edges");
+			}
+			from = new int[(int)total];
+			to = new int[(int)total];
+			wt = new int[(int)total];
+			for (Lexer part : done) {
+				System.arraycopy(part.from, 0, from, m, part.m);
+				System.arraycopy(part.to, 0, to, m, part.m);
+				System.arraycopy(part.wt, 0, wt, m, part.m);
+				m += part.m;
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	// waits for a parsed chunk, rethrowing the parse failure if there was one
+	private static Lexer waitFor(Future<Lexer> part)
+	throws IOException {
+		try {
+			return part.get();
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while reading graph", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	// returns the position just after the first line break at or after pos, or the file size
+	private long lineStart(long pos)
+	throws IOException {
+		ByteBuffer bb = ByteBuffer.allocate(4096);
+		long size = ch.size();
+		while (pos < size) {
+			bb.clear();
+			int read = ch.read(bb, pos);
+			if (read <= 0) {
+				break;
+			}
+			for (int i=0; i < read; i++) {
+				if (bb.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += read;
+		}
+		return size;
+	}
+
+	// adds vertex v's name to the table; a repeated name then finds the later vertex, as in vertmap
+	private void addName(int v) {
+		byte[] name = names[v];
+		int mask = table.length-1;
+		int slot = hash(name, 0, name.length) & mask;
+		for (; table[slot] != 0; slot = (slot+1) & mask) {
+			if (Arrays.equals(names[table[slot]-1], name)) {
+				break;
+			}
+		}
+		table[slot] = v+1;
+	}
+
+	// returns the number of the vertex named by b[start..end), or -1
+	private int vertex(byte[] b, int start, int end) {
+		int mask = table.length-1;
+		int len = end - start;
+		for (int slot = hash(b, start, end) & mask; table[slot] != 0; slot = (slot+1) & mask) {
+			byte[] name = names[table[slot]-1];
+			if (name.length == len && same(name, b, start)) {
+				return table[slot]-1;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean same(byte[] name, byte[] b, int start) {
+		for (int i=0; i < name.length; i++) {
+			if (name[i] != b[start+i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(byte[] b, int start, int end) {
+		int h = 0;
+		for (int i=start; i < end; i++) {
+			h = h*31 + b[i];
+		}
+		h *= 0x9E3779B1;
+		return h ^ (h >>> 16);
+	}
+
+	// tells if b is a whitespace byte, as Scanner's default delimiter sees ASCII
+	private static boolean space(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0B;
+	}
+
+	/**
+	 * Splits the bytes of the file from start to end into tokens. The current token is
+	 * buf[pos..end), whole.
+	 */
+	private class Lexer {
+		byte[] buf = new byte[BUFFER_SIZE];
+		int pos, end, limit;
+
+		/**
+		 * File position of buf[0], and of the next byte to read into buf.
+		 */
+		long base, next;
+		long stop;
+
+		/**
+		 * Edges parsed by edges().
+		 */
+		int[] from = new int[16], to = new int[16], wt = new int[16];
+		int m;
+
+		Lexer(long start, long stop) {
+			base = next = start;
+			this.stop = stop;
+		}
+
+		/**
+		 * Moves to the next token. Returns false if there is none.
+		 */
+		boolean token()
+		throws IOException {
+			pos = end;
+			for (;;) {
+				while (pos < limit && space(buf[pos])) {
+					pos++;
+				}
+				if (pos < limit) {
+					break;
+				}
+				if (!fill()) {
+					end = pos;
+					return false;
+				}
+			}
+			int i = pos;
+			for (;;) {
+				while (i < limit && !space(buf[i])) {
+					i++;
+				}
+				if (i < limit) {
+					break;
+				}
+				int len = i - pos;
+				boolean more = fill();
+				i = pos + len;
+				if (!more) {
+					break;
+				}
+			}
+			end = i;
+			return true;
+		}
+
+		/**
+		 * Moves the unread bytes, from pos on, to the front of buf and reads more after them,
+		 * growing buf if it is full. Returns false if the end was reached.
+		 */
+		private boolean fill()
+		throws IOException {
+			if (next >= stop) {
+				return false;
+			}
+			if (pos > 0) {
+				System.arraycopy(buf, pos, buf, 0, limit - pos);
+				base += pos;
+				limit -= pos;
+				end -= pos;
+				pos = 0;
+			}
+			if (limit == buf.length) {
+				buf = Arrays.copyOf(buf, buf.length*2);
+			}
+			ByteBuffer bb = ByteBuffer.wrap(buf, limit, (int)Math.min(buf.length - limit, stop - next));
+			int read = 0;
+			while (read == 0) {
+				read = ch.read(bb, next);
+			}
+			if (read < 0) {
+				stop = next;
+				return false;
+			}
+			next += read;
+			limit += read;
+			return true;
+		}
+
+		/**
+		 * Returns the file position after the current token.
+		 */
+		long position() {
+			return base + end;
+		}
+
+		/**
+		 * Parses the current token as an int.
+		 */
+		int intToken()
+		throws IOException {
+			int i = pos;
+			boolean negative = buf[i] == '-';
+			if (negative || buf[i] == '+') {
+				i++;
+			}
+			if (i == end) {
+				throw error("Bad number");
+			}
+			long value = 0;
+			for (; i < end; i++) {
+				int d = buf[i] - '0';
+				if (d < 0 || d > 9) {
+					throw error("Bad number");
+				}
+				value = value*10 + d;
+				if (value > Integer.MAX_VALUE + 1L) {
+					throw error("Number out of range");
+				}
+			}
+			value = negative ? -value : value;
+			if (value > Integer.MAX_VALUE) {
+				throw error("Number out of range");
+			}
+			return (int)value;
+		}
+
+		// looks up the current token as a vertex name
+		private int vertexToken()
+		throws IOException {
+			int v = vertex(buf, pos, end);
+			if (v < 0) {
+				throw error("Unknown vertex");
+			}
+			return v;
+		}
+
+		/**
+		 * Parses the rest of this lexer's bytes as edges.
+		 */
+		void edges()
+		throws IOException {
+			while (token()) {
+				if (m == from.length) {
+					int cap = m*2;
+					from = Arrays.copyOf(from, cap);
+					to = Arrays.copyOf(to, cap);
+					wt = Arrays.copyOf(wt, cap);
+				}
+				from[m] = vertexToken();
+				if (!token()) {
+					throw error("Edge is cut short");
+				}
+				to[m] = vertexToken();
+				if (!token()) {
+					throw error("Edge is cut short");
+				}
+				wt[m] = intToken();
+				m++;
+			}
+		}
+
+		private IOException error(String message) {
+			if (pos == end) {
+				return new IOException(message + " at byte " + (base + pos));
+			}
+			String token = new String(buf, pos, end - pos, StandardCharsets.UTF_8);
+			return new IOException(message + " \"" + token + "\" at byte " + (base + pos));
+		}
+	}
+}
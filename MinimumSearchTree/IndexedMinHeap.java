@@ -0,0 +1,265 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Implements an indexed MIN-heap of int keys over int handles 0..capacity-1, with
+ * decreaseKey and removal by handle. Each heap slot holds a handle and its key packed in
+ * one long (key in the high half, so slots compare as longs, with ties going to the lower
+ * handle), and pos gives the slot of each handle. Nothing is allocated after construction.
+ * <p>
+ * The heap is d-ary, like MinHeap. It can also be laid out so that the children of a node
+ * start on a multiple of arity in the array: with arity 8, the 8 longs of a family then fill
+ * one 64-byte cache line (if the array data is itself line aligned, which the JVM does not
+ * promise; otherwise a family still spans at most two lines, never three).
+ */
+public class IndexedMinHeap {
+
+	/**
+	 * Heap slots: key << 32 | handle.
+	 */
+	private long[] heap;
+
+	/**
+	 * Slot of each handle in heap, or -1 if the handle is not in the heap.
+	 */
+	private int[] pos;
+
+	private int size;
+
+	/**
+	 * Number of children of each node.
+	 */
+	private int arity;
+
+	/**
+	 * Index in heap of slot 0. Slot k is at heap[off+k].
+	 */
+	private int off;
+
+	/**
+	 * Constructs a new, empty binary heap for handles 0..capacity-1.
+	 */
+	public IndexedMinHeap(int capacity) {
+		this(capacity, 2, false);
+	}
+
+	/**
+	 * Constructs a new, empty heap for handles 0..capacity-1, in which each node has arity
+	 * children. If aligned is true, the root is put at index arity-1 of the array, so that the
+	 * children of slot k, slots arity*k+1 .. arity*k+arity, are at arity*(k+1) and on.
+	 */
+	public IndexedMinHeap(int capacity, int arity, boolean aligned) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Arity must be at least 2");
+		}
+		this.arity = arity;
+		off = aligned ? arity-1 : 0;
+		heap = new long[off + capacity];
+		pos = new int[capacity];
+		Arrays.fill(pos, -1);
+	}
+
+	/**
+	 * Inserts a handle with the given key. Throws IllegalArgumentException if the handle is
+	 * out of range or already in the heap.
+	 */
+	public void insert(int handle, int key) {
+		if (handle < 0 || handle >= pos.length) {
+			throw new IllegalArgumentException("Handle " + handle + " is out of range");
+		}
+		if (pos[handle] >= 0) {
+			throw new IllegalArgumentException("Handle " + handle + " is already in the heap");
+		}
+		heap[off+size] = entry(key, handle);
+		pos[handle] = size;
+		siftUp(size++);
+	}
+
+	/**
+	 * Lowers the key of a handle in the heap. Throws IllegalArgumentException if the new key is
+	 * greater than the current one, and NoSuchElementException if the handle is not in the heap.
+	 */
+	public void decreaseKey(int handle, int key) {
+		int k = slot(handle);
+		if (key > key(heap[off+k])) {
+			throw new IllegalArgumentException("New key " + key + " is greater than " + key(heap[off+k]));
+		}
+		heap[off+k] = entry(key, handle);
+		siftUp(k);
+	}
+
+	/**
+	 * Inserts a handle with the given key, or lowers its key if it is in the heap with a greater
+	 * one. Returns true if the heap changed. (This is the relax step of Prim and Dijkstra.)
+	 */
+	public boolean offer(int handle, int key) {
+		if (!contains(handle)) {
+			insert(handle, key);
+			return true;
+		}
+		if (key < key(heap[off+pos[handle]])) {
+			decreaseKey(handle, key);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes a handle from the heap. Throws NoSuchElementException if it is not in the heap.
+	 */
+	public void remove(int handle) {
+		int k = slot(handle);
+		pos[handle] = -1;
+		size--;
+		if (k == size) {
+			return;
+		}
+		// the last slot fills the hole, and may have to go either way
+		long last = heap[off+size];
+		heap[off+k] = last;
+		pos[handle(last)] = k;
+		if (k > 0 && last < heap[off+(k-1)/arity]) {
+			siftUp(k);
+		} else {
+			siftDown(k);
+		}
+	}
+
+	/**
+	 * Removes the handle with the min key, and returns it.
+	 */
+	public int deleteMin()
+	throws NoSuchElementException {
+		int handle = getMin();
+		remove(handle);
+		return handle;
+	}
+
+	/**
+	 * Returns (but does not remove) the handle with the min key.
+	 */
+	public int getMin()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return handle(heap[off]);
+	}
+
+	/**
+	 * Returns the min key.
+	 */
+	public int getMinKey()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return key(heap[off]);
+	}
+
+	/**
+	 * Returns the key of a handle in the heap. Throws NoSuchElementException if it is not in
+	 * the heap.
+	 */
+	public int getKey(int handle) {
+		return key(heap[off+slot(handle)]);
+	}
+
+	/**
+	 * Tells if the given handle is in the heap.
+	 */
+	public boolean contains(int handle) {
+		return handle >= 0 && handle < pos.length && pos[handle] >= 0;
+	}
+
+	/**
+	 * Returns the number of handles currently in the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Tells if the heap is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all handles from the heap.
+	 */
+	public void clear() {
+		for (int k=0; k < size; k++) {
+			pos[handle(heap[off+k])] = -1;
+		}
+		size = 0;
+	}
+
+	// sift up and down work on h = heap, with slot k at h[o+k]
+	private void siftUp(int k) {
+		long[] h = heap;
+		int o = off, d = arity;
+		long e = h[o+k];
+		while (k > 0) {
+			int p = (k-1)/d;
+			long parent = h[o+p];
+			if (e >= parent) {
+				break;
+			}
+			h[o+k] = parent;
+			pos[handle(parent)] = k;
+			k = p;
+		}
+		h[o+k] = e;
+		pos[handle(e)] = k;
+	}
+
+	private void siftDown(int k) {
+		long[] h = heap;
+		int o = off, d = arity, n = size;
+		long e = h[o+k];
+		int first;
+		while ((first = d*k+1) < n) {
+			int c = first;
+			long min = h[o+first];
+			int end = Math.min(first + d, n);
+			for (int i=first+1; i < end; i++) {
+				if (h[o+i] < min) {
+					min = h[o+i];
+					c = i;
+				}
+			}
+			if (min >= e) {
+				break;
+			}
+			h[o+k] = min;
+			pos[handle(min)] = k;
+			k = c;
+		}
+		h[o+k] = e;
+		pos[handle(e)] = k;
+	}
+
+	// slot of a handle that must be in the heap
+	private int slot(int handle) {
+		if (!contains(handle)) {
+			throw new NoSuchElementException("Handle " + handle + " is not in the heap");
+		}
+		return pos[handle];
+	}
+
+	private static long entry(int key, int handle) {
+		return (long)key << 32 | handle;
+	}
+
+	private static int key(long entry) {
+		return (int)(entry >> 32);
+	}
+
+	private static int handle(long entry) {
+		return (int)entry;
+	}
+}
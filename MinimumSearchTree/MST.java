@@ -1,5 +1,7 @@
+package structures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 
 
@@ -13,6 +15,8 @@ public class MST {
 			return null;
 		}
 	
+		// every vertex starts out as its own partial tree, even if the graph was used before
+		graph.resetPartialTrees();
 		PartialTreeList list = new PartialTreeList();
 		
 		for(int i = 0; i < graph.vertices.length; i++) {
@@ -69,8 +73,78 @@ public class MST {
 		
 		
 		}
-		while(ptlist != null);
+		while(ptlist.size() > 1);
 
 		return mst;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Computes a minimum spanning tree (a forest, if the graph is not connected) with Boruvka's
+	 * algorithm, on all available processors. See Boruvka.
+	 */
+	public static ArrayList<PartialTree.Arc> boruvka(Graph graph) {
+		return Boruvka.execute(graph, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Computes a minimum spanning tree of a compressed graph with Boruvka's algorithm, on all
+	 * available processors.
+	 */
+	public static ArrayList<PartialTree.Arc> boruvka(CsrGraph graph) {
+		return Boruvka.execute(graph, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Computes a minimum spanning tree (a forest, if the graph is not connected) with Prim's
+	 * algorithm. The graph is first copied to a CsrGraph; see prim(CsrGraph).
+	 */
+	public static ArrayList<PartialTree.Arc> prim(Graph graph) {
+		if(graph == null) {
+			return null;
+		}
+		return prim(new CsrGraph(graph));
+	}
+
+	/**
+	 * Computes a minimum spanning tree (a forest, if the graph is not connected) with Prim's
+	 * algorithm, keeping the vertices not yet in the tree in an IndexedMinHeap keyed on the
+	 * lightest arc that reaches them from the tree. Each vertex is in the heap at most once,
+	 * and its key is lowered in place, so there are no stale arcs to throw away.
+	 */
+	public static ArrayList<PartialTree.Arc> prim(CsrGraph graph) {
+		if(graph == null) {
+			return null;
+		}
+		int n = graph.vertices.length;
+		int[] offsets = graph.offsets, targets = graph.targets, weights = graph.weights;
+		ArrayList<PartialTree.Arc> mst = new ArrayList<PartialTree.Arc>();
+		IndexedMinHeap heap = new IndexedMinHeap(n);
+		boolean[] done = new boolean[n];
+		// lightest arc into each vertex in the heap: the tree vertex it comes from, and its weight
+		int[] from = new int[n];
+		int[] weight = new int[n];
+		Arrays.fill(from, -1);
+
+		for(int start = 0; start < n; start++) {
+			if(done[start]) {
+				continue;
+			}
+			heap.insert(start, 0);
+			while(!heap.isEmpty()) {
+				int v = heap.deleteMin();
+				done[v] = true;
+				if(from[v] >= 0) {
+					mst.add(new PartialTree.Arc(graph.vertices[from[v]], graph.vertices[v], weight[v]));
+				}
+				for(int a = offsets[v], end = offsets[v+1]; a < end; a++) {
+					int w = targets[a];
+					if(!done[w] && heap.offer(w, weights[a])) {
+						from[w] = v;
+						weight[w] = weights[a];
+					}
+				}
+			}
+		}
+		return mst;
+	}
+}
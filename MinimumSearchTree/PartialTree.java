@@ -1,4 +1,4 @@
-
+package structures;
 
 public class PartialTree {
   
@@ -68,15 +68,35 @@ public class PartialTree {
 	 */
     public PartialTree(Vertex vertex) {
     	root = vertex;
-    	arcs = new MinHeap<Arc>();
+    	// a 4-ary heap is half as deep as a binary one, which pays off as trees merge and grow
+    	arcs = new MinHeap<Arc>(10, 4);
     }
 
     /**
-     * Merges another partial tree into this partial tree
+     * Merges another partial tree into this partial tree. The vertex sets are joined in the
+     * graph's disjoint sets, by size, so the root of this tree afterwards may be the other
+     * tree's root. The other tree is consumed: its arcs are moved into this tree (the larger
+     * heap is kept and the smaller one merged into it), and it is left with an empty arc set.
      */
     public void merge(PartialTree other)	{
-    	other.root.parent = root;
-    	arcs.merge(other.arcs);
+    	Graph graph = root.graph;
+    	if (graph != null) {
+    		Vertex merged = graph.vertices[graph.sets.union(root.id, other.root.id)];
+    		Vertex child = merged == root ? other.root : root;
+    		child.parent = merged;
+    		root = merged;
+    	} else {
+    		other.root.parent = root;
+    	}
+    	// merge the smaller heap into the larger one
+    	MinHeap<Arc> taken = other.arcs;
+    	other.arcs = new MinHeap<Arc>(10, 4);
+    	if (taken.size() > arcs.size()) {
+    		taken.merge(arcs);
+    		arcs = taken;
+    	} else {
+    		arcs.merge(taken);
+    	}
     }
     
     /**
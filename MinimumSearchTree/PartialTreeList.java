@@ -1,3 +1,6 @@
+package structures;
+
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -6,7 +9,7 @@ import java.util.NoSuchElementException;
 public class PartialTreeList implements Iterable<PartialTree> {
     
 	/**
-	 * Inner class - to build the partial tree circular linked list 
+	 * Inner class - to build the partial tree circular, doubly linked list 
 	 * 
 	 */
 	public static class Node {
@@ -20,13 +23,24 @@ public class PartialTreeList implements Iterable<PartialTree> {
 		 */
 		public Node next;
 		
+		/**
+		 * Previous node in linked list
+		 */
+		public Node prev;
+		
+		/**
+		 * Root of the tree when it was added, which is its key in the index
+		 */
+		Vertex root;
+		
 		/**
 		 * Initializes this node by setting the tree part to the given tree,
-		 * and setting next part to null
+		 * and setting next and prev parts to null
 		 */
 		public Node(PartialTree tree) {
 			this.tree = tree;
 			next = null;
+			prev = null;
 		}
 	}
 
@@ -40,12 +54,20 @@ public class PartialTreeList implements Iterable<PartialTree> {
 	 */
 	private int size;
 	
+	/**
+	 * Index of the nodes by the root of their tree, so that the tree containing a vertex
+	 * is found without going around the list. A tree's root may change when it is merged,
+	 * so trees should be merged while they are out of the list (as MST.execute does).
+	 */
+	private HashMap<Vertex,Node> index;
+	
 	/**
 	 * Initializes this list to empty
 	 */
     public PartialTreeList() {
     	rear = null;
     	size = 0;
+    	index = new HashMap<Vertex,Node>();
     }
 
     /**
@@ -55,12 +77,17 @@ public class PartialTreeList implements Iterable<PartialTree> {
     	Node ptr = new Node(tree);
     	if (rear == null) {
     		ptr.next = ptr;
+    		ptr.prev = ptr;
     	} else {
     		ptr.next = rear.next;
+    		ptr.prev = rear;
+    		rear.next.prev = ptr;
     		rear.next = ptr;
     	}
     	rear = ptr;
     	size++;
+    	ptr.root = tree.getRoot();
+    	index.put(ptr.root, ptr);
     }
 
     /**
@@ -69,59 +96,66 @@ public class PartialTreeList implements Iterable<PartialTree> {
     public PartialTree remove() 
     throws NoSuchElementException {
     	
-    	Node ptr = this.rear.next;
-    	
     	//throws error if partial tree is empty
     	if(this.rear == null) {
     		throw new NoSuchElementException();
     	}
     	
-    	if(size == 1) {
-    		size--;
-    		return rear.tree;
-    	}
-    	else{
-    	rear.next = rear.next.next;
-    	ptr.next = null;
-    	size--;
+    	Node ptr = rear.next;
+    	unlink(ptr);
     	return ptr.tree;
-    	
-    	}
-
     }
 
     /**
-     * Removes the tree in this list that contains a given vertex.
+     * Removes the tree in this list that contains a given vertex. This is a lookup in the
+     * index by the vertex's root, so it takes constant time.
      */
     public PartialTree removeTreeContaining(Vertex vertex) 
     throws NoSuchElementException {
-    	
-    	
-    	
-    	while(this.iterator().hasNext()) {
-    		for(PartialTree i : this) {
-    		//for(PartialTree i = this.rear.tree; i != rear.tree; i = i.rear.next.tree  ) {
-    			if(i.getRoot() == vertex.getRoot()) {
-    				PartialTree tree = i;
-    				this.remove();
-    				return tree;
-    			}
-    			this.append(this.remove());
+    	Vertex root = vertex.getRoot();
+    	Node ptr = index.get(root);
+    	if (ptr == null || ptr.tree.getRoot() != root) {
+    		// the tree was merged after it was added; look for it the slow way
+    		ptr = null;
+    		if (rear != null) {
+    			Node p = rear;
+    			do {
+    				if (p.tree.getRoot() == root) {
+    					ptr = p;
+    					break;
+    				}
+    				p = p.next;
+    			} while (p != rear);
+    		}
+    		if (ptr == null) {
+    			throw new NoSuchElementException();
     		}
     	}
-    	throw new NoSuchElementException();
+    	unlink(ptr);
+    	return ptr.tree;
+    }
 
-     }
-    
-    /*private boolean lookFor(PartialTree tree, Vertex vertex) {
-    	
-    	Vertex ptr = vertex;
-    	
-    	
-    	if(vertex.parent ==null) {
-    		if
+    /**
+     * Takes a node out of the list and the index.
+     */
+    private void unlink(Node ptr) {
+    	if (size == 1) {
+    		rear = null;
+    	} else {
+    		ptr.prev.next = ptr.next;
+    		ptr.next.prev = ptr.prev;
+    		if (ptr == rear) {
+    			rear = ptr.prev;
+    		}
     	}
-    } */
+    	ptr.next = null;
+    	ptr.prev = null;
+    	size--;
+    	if (index.get(ptr.root) == ptr) {
+    		index.remove(ptr.root);
+    	}
+    }
+    
     /**
      * Gives the number of trees in this list
      */
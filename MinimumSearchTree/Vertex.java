@@ -56,6 +56,17 @@ public class Vertex {
      */
     public Vertex parent;
 
+    /**
+     * Number of this vertex in its graph (its index in the graph's vertices array).
+     */
+    public int id;
+
+    /**
+     * Graph this vertex belongs to, whose disjoint sets hold the partial tree of each vertex.
+     * Null for a vertex made outside a Graph, which then only has its parent reference.
+     */
+    Graph graph;
+
     /**
      * Constructs a new Vertex object with no neighbors (i.e.,
      * no outgoing edges), and no parent vertex (i.e., it is its own partial
@@ -69,9 +80,13 @@ public class Vertex {
 
     /**
      * Finds and returns the vertex at the root of the partial spanning tree to
-     * which this vertex belongs.
+     * which this vertex belongs. For a vertex of a Graph, this is a find in the graph's
+     * disjoint sets, which takes (all but) constant time.
      */
     public Vertex getRoot() {
+		if (graph != null) {
+			return graph.vertices[graph.sets.find(id)];
+		}
 		Vertex v;
 		for (v = this ; v.parent != v ; v = v.parent);
 		return v;
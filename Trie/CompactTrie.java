@@ -0,0 +1,783 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// This class implements a compressed trie in flat arrays. Nodes are int ids, and every per-node field
+// is an array indexed by node id. Edge labels are (start, length) ranges in one shared char array
+// holding all the words, so matching a label compares characters in place. The children of a node are
+// a sorted block in a shared child pool, found by binary search on their first characters.
+
+public class CompactTrie {
+
+	/**
+	 * Characters of all words in this trie, back to back.
+	 */
+	char[] text;
+	int textLength;
+
+	/**
+	 * Start of each word in text, indexed by word id. Word w ends where word w+1 starts,
+	 * so there are wordCount+1 entries in use.
+	 */
+	int[] wordStart;
+	int wordCount;
+
+	/**
+	 * Label of each node: a range of text. The root (node 0) has an empty label.
+	 */
+	int[] labelStart;
+	short[] labelLength;
+
+	/**
+	 * Id of the word that ends at each node, or -1 if no word ends there.
+	 */
+	int[] wordId;
+
+	/**
+	 * Children of each node: a block of childCapacity slots starting at childOffset in the
+	 * child pool, of which the first childCount are in use.
+	 */
+	int[] childOffset;
+	int[] childCount;
+	int[] childCapacity;
+	int nodeCount;
+
+	/**
+	 * Child pool: node ids, and the first character of each node's label (the binary search key).
+	 */
+	int[] children;
+	char[] childChars;
+	int poolSize;
+
+	/**
+	 * Length of the longest word.
+	 */
+	int maxWordLength;
+
+	/**
+	 * Weight of each word, indexed by word id.
+	 */
+	int[] weight;
+
+	/**
+	 * Highest weight of any word in the subtree of each node (an upper bound, if a weight
+	 * has been lowered since).
+	 */
+	int[] maxWeight;
+
+	/**
+	 * Initializes an empty trie, with just the root node.
+	 */
+	public CompactTrie() {
+		text = new char[1024];
+		wordStart = new int[64];
+		weight = new int[64];
+		labelStart = new int[64];
+		labelLength = new short[64];
+		wordId = new int[64];
+		maxWeight = new int[64];
+		childOffset = new int[64];
+		childCount = new int[64];
+		childCapacity = new int[64];
+		children = new int[256];
+		childChars = new char[256];
+		newNode(0, 0);
+	}
+
+	/**
+	 * Inserts a word into this trie, with weight 0. Converts to lower case before adding. Returns
+	 * the id of the word, which is the same as before if the word was already in the trie.
+	 */
+	public int insertWord(String word) {
+		return insertWord(word, 0);
+	}
+
+	/**
+	 * Inserts a word into this trie with the given weight (which replaces the old weight if the
+	 * word is already in the trie). Converts to lower case before adding. Returns the id of the word.
+	 */
+	public int insertWord(String word, int wt) {
+		// the word goes at the end of text, but is only kept there if it is new
+		int s = textLength;
+		int len = appendLowerCase(word);
+
+		int node = 0;
+		int i = 0;
+		maxWeight[0] = Math.max(maxWeight[0], wt);
+		while (i < len) {
+			char c = text[s+i];
+			int slot = childSlot(node, c);
+			if (slot < 0) {
+				int leaf = newNode(s+i, len-i);
+				addChild(node, -slot-1, leaf);
+				node = leaf;
+				maxWeight[node] = wt;
+				break;
+			}
+			int child = children[slot];
+			int ls = labelStart[child], ll = labelLength[child];
+			int j = 1;
+			while (j < ll && i+j < len && text[ls+j] == text[s+i+j]) {
+				j++;
+			}
+			if (j < ll) {
+				split(slot, j);
+				child = children[slot];
+			}
+			node = child;
+			maxWeight[node] = Math.max(maxWeight[node], wt);
+			i += j;
+		}
+
+		if (wordId[node] >= 0) {
+			weight[wordId[node]] = wt;
+			return wordId[node];
+		}
+		ensureWords(wordCount + 2);
+		wordStart[wordCount] = s;
+		weight[wordCount] = wt;
+		wordId[node] = wordCount;
+		wordCount++;
+		textLength = s + len;
+		wordStart[wordCount] = textLength;
+		maxWordLength = Math.max(maxWordLength, len);
+		return wordCount-1;
+	}
+
+	/**
+	 * Builds a trie out of words that come in sorted order (after lower casing), in one pass.
+	 * Each word is compared only with the one before it: the nodes on the previous word's path
+	 * below their longest common prefix are done, the node the prefix ends in is split if need
+	 * be, and the rest of the word becomes a new last child there. No search from the root and
+	 * no child lookups are needed, and since children come in sorted order, they are laid out
+	 * in the child pool once at the end, with no room to spare. Repeated words are skipped. All
+	 * weights are 0. Throws IllegalArgumentException if the words are out of order.
+	 */
+	public static CompactTrie buildSorted(Iterator<String> words) {
+		CompactTrie trie = new CompactTrie();
+		int[] path = new int[16];    // nodes on the path of the previous word, root first
+		int[] depth = new int[16];   // length of the path to the end of each of those nodes
+		int top = 0;
+		path[0] = 0;
+		depth[0] = 0;
+		int prevStart = 0, prevLength = -1;
+
+		// parent-child edges in the order they are made, and the edge leading to each node
+		int[] edgeParent = new int[64], edgeChild = new int[64];
+		int[] edgeOf = new int[64];
+		int edges = 0;
+
+		while (words.hasNext()) {
+			int s = trie.textLength;
+			int len = trie.appendLowerCase(words.next());
+			char[] text = trie.text;
+
+			int l = 0;
+			int max = Math.min(len, prevLength);
+			while (l < max && text[s+l] == text[prevStart+l]) {
+				l++;
+			}
+			if (prevLength >= 0) {
+				if (l == len && len == prevLength) {
+					continue;  // same as the previous word
+				}
+				if (l == len || (l < prevLength && text[s+l] < text[prevStart+l])) {
+					throw new IllegalArgumentException("Words are not in sorted order: " + 
+							trie.word(trie.wordCount-1) + ", " + new String(text, s, len));
+				}
+			}
+
+			// close the nodes that lie entirely past the common prefix
+			while (top > 0 && depth[top-1] >= l) {
+				top--;
+			}
+			int node = path[top];
+			if (depth[top] > l) {
+				// the prefix ends inside this node's label: a new node with the first part of
+				// the label takes its place under the parent, and becomes its parent
+				int j = l - depth[top-1];
+				int mid = trie.newNode(trie.labelStart[node], j);
+				trie.labelStart[node] += j;
+				trie.labelLength[node] -= j;
+				if (edges+1 >= edgeChild.length) {
+					edgeParent = Arrays.copyOf(edgeParent, edges*2);
+					edgeChild = Arrays.copyOf(edgeChild, edges*2);
+				}
+				if (mid >= edgeOf.length) {
+					edgeOf = Arrays.copyOf(edgeOf, mid*2);
+				}
+				int e = edgeOf[node];
+				edgeChild[e] = mid;
+				edgeOf[mid] = e;
+				edgeParent[edges] = mid;
+				edgeChild[edges] = node;
+				edgeOf[node] = edges++;
+				node = mid;
+				path[top] = node;
+				depth[top] = l;
+			}
+
+			if (l < len) {
+				int leaf = trie.newNode(s+l, len-l);
+				if (edges == edgeChild.length) {
+					edgeParent = Arrays.copyOf(edgeParent, edges*2);
+					edgeChild = Arrays.copyOf(edgeChild, edges*2);
+				}
+				if (leaf >= edgeOf.length) {
+					edgeOf = Arrays.copyOf(edgeOf, leaf*2);
+				}
+				edgeParent[edges] = node;
+				edgeChild[edges] = leaf;
+				edgeOf[leaf] = edges++;
+				if (++top == path.length) {
+					path = Arrays.copyOf(path, top*2);
+					depth = Arrays.copyOf(depth, top*2);
+				}
+				path[top] = leaf;
+				depth[top] = len;
+				node = leaf;
+			}
+
+			trie.ensureWords(trie.wordCount + 2);
+			trie.wordStart[trie.wordCount] = s;
+			trie.wordId[node] = trie.wordCount;
+			trie.wordCount++;
+			trie.textLength = s + len;
+			trie.wordStart[trie.wordCount] = trie.textLength;
+			trie.maxWordLength = Math.max(trie.maxWordLength, len);
+			prevStart = s;
+			prevLength = len;
+		}
+
+		// lay out the children of each node as a block, keeping them in the order they came in
+		int nodes = trie.nodeCount;
+		int[] offset = trie.childOffset, count = trie.childCount;
+		for (int e=0; e < edges; e++) {
+			count[edgeParent[e]]++;
+		}
+		int off = 0;
+		for (int n=0; n < nodes; n++) {
+			offset[n] = off;
+			trie.childCapacity[n] = count[n];
+			off += count[n];
+			count[n] = 0;
+		}
+		trie.ensurePool(edges);
+		for (int e=0; e < edges; e++) {
+			int parent = edgeParent[e], child = edgeChild[e];
+			int slot = offset[parent] + count[parent]++;
+			trie.children[slot] = child;
+			trie.childChars[slot] = trie.text[trie.labelStart[child]];
+		}
+		trie.poolSize = edges;
+
+		// every node has a word below it, and all weights are 0
+		Arrays.fill(trie.maxWeight, 0, trie.wordCount > 0 ? nodes : 0, 0);
+		return trie;
+	}
+
+	/**
+	 * Builds a trie out of words in any order: they are lower cased and sorted, then loaded
+	 * with buildSorted.
+	 */
+	public static CompactTrie build(Collection<String> words) {
+		String[] sorted = new String[words.size()];
+		int i = 0;
+		for (String w : words) {
+			sorted[i++] = w.toLowerCase();
+		}
+		Arrays.sort(sorted);
+		return buildSorted(Arrays.asList(sorted).iterator());
+	}
+
+	/**
+	 * Appends the lower cased word to text (without committing it, textLength is not moved),
+	 * and returns its length.
+	 */
+	private int appendLowerCase(String word) {
+		int len = word.length();
+		for (int i=0; i < len; i++) {
+			if (word.charAt(i) >= 128) {
+				// lower casing may change the length
+				word = word.toLowerCase();
+				len = word.length();
+				break;
+			}
+		}
+		if (len > Short.MAX_VALUE) {
+			throw new IllegalArgumentException("Word is too long");
+		}
+		int s = textLength;
+		ensureText(s + len);
+		for (int i=0; i < len; i++) {
+			char c = word.charAt(i);
+			text[s+i] = c >= 'A' && c <= 'Z' ? (char)(c + ('a'-'A')) : c;
+		}
+		return len;
+	}
+
+	/**
+	 * Tells if the given word is in this trie.
+	 */
+	public boolean contains(String word) {
+		int node = 0;
+		int i = 0, len = word.length();
+		while (i < len) {
+			int slot = childSlot(node, lower(word.charAt(i)));
+			if (slot < 0) {
+				return false;
+			}
+			node = children[slot];
+			int ls = labelStart[node], ll = labelLength[node];
+			if (i + ll > len) {
+				return false;
+			}
+			for (int j=1; j < ll; j++) {
+				if (text[ls+j] != lower(word.charAt(i+j))) {
+					return false;
+				}
+			}
+			i += ll;
+		}
+		return wordId[node] >= 0;
+	}
+
+	/**
+	 * Tells if any word in this trie starts with the given prefix.
+	 */
+	public boolean hasPrefix(String prefix) {
+		// every node but the root of an empty trie has a word at or below it
+		return locate(prefix) >= 0 && wordCount > 0;
+	}
+
+	/**
+	 * Returns all the words in this trie that start with the given prefix, in alphabetical
+	 * (char) order, or null if there are none.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		ArrayList<String> result = new ArrayList<String>();
+		for (Iterator<String> it = completions(prefix, Integer.MAX_VALUE); it.hasNext(); ) {
+			result.add(it.next());
+		}
+		return result.isEmpty() ? null : result;
+	}
+
+	/**
+	 * Returns a lazy iterator over the first limit words (in alphabetical order) that start with
+	 * the given prefix. The iterator descends to the prefix node right away, but each word is
+	 * only found, and made into a String, when next is called.
+	 */
+	public Iterator<String> completions(String prefix, int limit) {
+		return new CompletionIterator(locate(prefix), limit);
+	}
+
+	/**
+	 * Receives completions from forEachCompletion.
+	 */
+	public interface Visitor {
+		/**
+		 * Called with each completion. Returns false to stop.
+		 */
+		boolean visit(String word);
+	}
+
+	/**
+	 * Passes the first limit words (in alphabetical order) that start with the given prefix to the
+	 * visitor, stopping early if it returns false. Returns the number of words passed.
+	 */
+	public int forEachCompletion(String prefix, int limit, Visitor visitor) {
+		int n = 0;
+		for (Iterator<String> it = completions(prefix, limit); it.hasNext(); ) {
+			n++;
+			if (!visitor.visit(it.next())) {
+				break;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Preorder walk of a subtree, children in order, with an explicit stack of node ids.
+	 */
+	private class CompletionIterator implements Iterator<String> {
+		private int[] stack;
+		private int top;
+		private int left;
+		private int next = -1;
+
+		CompletionIterator(int node, int limit) {
+			stack = new int[16];
+			top = 0;
+			left = limit;
+			if (node >= 0) {
+				stack[top++] = node;
+			}
+		}
+
+		public boolean hasNext() {
+			if (next >= 0) {
+				return true;
+			}
+			if (left <= 0) {
+				return false;
+			}
+			while (top > 0) {
+				int node = stack[--top];
+				int off = childOffset[node];
+				int count = childCount[node];
+				if (top + count > stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(stack.length*2, top + count));
+				}
+				// push children last to first, so the first is visited next
+				for (int i=count-1; i >= 0; i--) {
+					stack[top++] = children[off+i];
+				}
+				if (wordId[node] >= 0) {
+					next = wordId[node];
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			String word = word(next);
+			next = -1;
+			left--;
+			return word;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Returns the k heaviest words that start with the given prefix, heaviest first, or null
+	 * if there are none. This is a best-first search: a heap holds nodes keyed on the highest
+	 * weight in their subtree, and words keyed on their own weight, so a word comes off the heap
+	 * only when nothing left can outweigh it, and subtrees too light for the result are never
+	 * opened. The cost depends on k and the prefix, not on how many words have the prefix.
+	 */
+	public ArrayList<String> topKCompletions(String prefix, int k) {
+		int node = locate(prefix);
+		if (node < 0 || k < 1) {
+			return null;
+		}
+		ArrayList<String> result = new ArrayList<String>(Math.min(k, 16));
+		LongMinHeap heap = new LongMinHeap(32);
+		heap.insert(entry(maxWeight[node], node << 1));
+		while (result.size() < k && !heap.isEmpty()) {
+			int code = (int)heap.deleteMin();
+			if ((code & 1) == 1) {
+				result.add(word(code >>> 1));
+				continue;
+			}
+			node = code >>> 1;
+			if (wordId[node] >= 0) {
+				heap.insert(entry(weight[wordId[node]], wordId[node] << 1 | 1));
+			}
+			int off = childOffset[node];
+			for (int i=0; i < childCount[node]; i++) {
+				int child = children[off+i];
+				heap.insert(entry(maxWeight[child], child << 1));
+			}
+		}
+		return result.isEmpty() ? null : result;
+	}
+
+	// heap key: highest weight first, then lowest code (node id << 1, or word id << 1 | 1)
+	private static long entry(int wt, int code) {
+		return (long)~wt << 32 | code;
+	}
+
+	/**
+	 * Returns up to limit words that start with something within maxEdits edits (insertions,
+	 * deletions or substitutions of one character) of the given prefix, fewest edits first, and
+	 * in alphabetical order for the same number of edits. Returns null if there are none.
+	 * <p>
+	 * The trie is walked with one row of the edit distance table per character of the path: row
+	 * entry j is the distance between the path and the first j characters of the prefix. A branch
+	 * is dropped as soon as every entry of its row is over the limit, since rows below it can only
+	 * be higher. A branch whose path already came within the limit of the whole prefix is not
+	 * walked further, its words are simply listed. Each number of edits is a separate walk, so
+	 * the walks for more edits are only made if the closer matches do not fill the limit.
+	 */
+	public ArrayList<String> fuzzyCompletions(String prefix, int maxEdits, int limit) {
+		if (maxEdits < 0) {
+			throw new IllegalArgumentException("maxEdits must not be negative");
+		}
+		ArrayList<String> result = new ArrayList<String>();
+		FuzzySearch search = new FuzzySearch(prefix, maxEdits, limit, result);
+		for (int edits=0; edits <= maxEdits && result.size() < limit; edits++) {
+			search.walk(edits);
+		}
+		return result.isEmpty() ? null : result;
+	}
+
+	/**
+	 * State of a fuzzyCompletions walk.
+	 */
+	private class FuzzySearch {
+		private char[] query;
+		private int[][] rows;    // rows[d] is the edit distance row for a path of d characters
+		private int limit;
+		private ArrayList<String> result;
+		private int edits;
+
+		FuzzySearch(String prefix, int maxEdits, int limit, ArrayList<String> result) {
+			query = new char[prefix.length()];
+			for (int i=0; i < query.length; i++) {
+				query[i] = lower(prefix.charAt(i));
+			}
+			// a path longer than the prefix plus maxEdits is over the limit everywhere
+			rows = new int[query.length + maxEdits + 2][query.length + 1];
+			for (int j=0; j <= query.length; j++) {
+				rows[0][j] = j;
+			}
+			this.limit = limit;
+			this.result = result;
+		}
+
+		/**
+		 * Adds the words at exactly the given number of edits to result.
+		 */
+		void walk(int edits) {
+			this.edits = edits;
+			int m = query.length;
+			if (m == edits && wordId[0] >= 0) {
+				// the empty word is m edits from the prefix
+				result.add(word(wordId[0]));
+			}
+			if (result.size() < limit) {
+				walk(0, 0, m);
+			}
+		}
+
+		// walks the children of node, whose path is depth characters long and came within best
+		// edits of the prefix; returns false once the limit is reached
+		private boolean walk(int node, int depth, int best) {
+			int m = query.length;
+			int off = childOffset[node];
+			for (int c=0; c < childCount[node]; c++) {
+				int child = children[off+c];
+				int ls = labelStart[child], ll = labelLength[child];
+				int d = depth, b = best;
+				boolean alive = true;
+				for (int k=0; k < ll; k++) {
+					// next row from the previous one, for path character text[ls+k]
+					char ch = text[ls+k];
+					int[] prev = rows[d], row = rows[d+1];
+					row[0] = d+1;
+					int min = row[0];
+					for (int j=1; j <= m; j++) {
+						int cost = prev[j-1] + (query[j-1] == ch ? 0 : 1);
+						cost = Math.min(cost, Math.min(prev[j], row[j-1]) + 1);
+						row[j] = cost;
+						min = Math.min(min, cost);
+					}
+					d++;
+					b = Math.min(b, row[m]);
+					if (min > edits) {
+						alive = false;
+						break;
+					}
+				}
+
+				if (!alive) {
+					// nothing below can come closer: every word here is b edits away
+					if (b == edits && !list(child)) {
+						return false;
+					}
+					continue;
+				}
+				if (b == edits && wordId[child] >= 0) {
+					result.add(word(wordId[child]));
+					if (result.size() >= limit) {
+						return false;
+					}
+				}
+				if (!walk(child, d, b)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// adds the words in the subtree of node to result; returns false once the limit is reached
+		private boolean list(int node) {
+			for (Iterator<String> it = new CompletionIterator(node, limit - result.size()); it.hasNext(); ) {
+				result.add(it.next());
+			}
+			return result.size() < limit;
+		}
+	}
+
+	/**
+	 * Returns the weight of the word with the given id.
+	 */
+	public int weight(int id) {
+		return weight[id];
+	}
+
+	/**
+	 * Returns the word with the given id.
+	 */
+	public String word(int id) {
+		return new String(text, wordStart[id], wordStart[id+1] - wordStart[id]);
+	}
+
+	/**
+	 * Returns the number of words in this trie.
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * Returns the number of nodes in this trie, including the root.
+	 */
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Finds the node at which the words starting with the given prefix branch off: the first
+	 * node whose path from the root covers the whole prefix. Returns -1 if no word has the prefix.
+	 */
+	int locate(CharSequence prefix) {
+		int node = 0;
+		int i = 0, len = prefix.length();
+		while (i < len) {
+			int slot = childSlot(node, lower(prefix.charAt(i)));
+			if (slot < 0) {
+				return -1;
+			}
+			node = children[slot];
+			int ls = labelStart[node], ll = labelLength[node];
+			int j = 1;
+			for (; j < ll && i+j < len; j++) {
+				if (text[ls+j] != lower(prefix.charAt(i+j))) {
+					return -1;
+				}
+			}
+			i += j;
+		}
+		return node;
+	}
+
+	static char lower(char c) {
+		if (c < 128) {
+			return c >= 'A' && c <= 'Z' ? (char)(c + ('a'-'A')) : c;
+		}
+		return Character.toLowerCase(c);
+	}
+
+	/**
+	 * Returns the child pool slot of the child of node whose label starts with c, or
+	 * -(slot where it would be inserted)-1 if there is none.
+	 */
+	int childSlot(int node, char c) {
+		int lo = childOffset[node], hi = lo + childCount[node] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char m = childChars[mid];
+			if (m < c) {
+				lo = mid + 1;
+			} else if (m > c) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -lo-1;
+	}
+
+	/**
+	 * Splits the child at the given pool slot after the first j characters of its label: a new
+	 * node with those j characters takes its place, and the old child (with the rest of the
+	 * label) becomes the new node's only child.
+	 */
+	private void split(int slot, int j) {
+		int child = children[slot];
+		int mid = newNode(labelStart[child], j);
+		maxWeight[mid] = maxWeight[child];
+		labelStart[child] += j;
+		labelLength[child] -= j;
+		children[slot] = mid;
+		addChild(mid, childOffset[mid], child);
+	}
+
+	/**
+	 * Inserts child into node's children, at the given pool slot (which keeps them sorted).
+	 */
+	private void addChild(int node, int slot, int child) {
+		int off = childOffset[node], count = childCount[node];
+		if (count == childCapacity[node]) {
+			// move the block to the end of the pool, with twice the room
+			int cap = Math.max(2, count*2);
+			ensurePool(poolSize + cap);
+			System.arraycopy(children, off, children, poolSize, count);
+			System.arraycopy(childChars, off, childChars, poolSize, count);
+			slot += poolSize - off;
+			off = poolSize;
+			childOffset[node] = off;
+			childCapacity[node] = cap;
+			poolSize += cap;
+		}
+		int end = off + count;
+		System.arraycopy(children, slot, children, slot+1, end-slot);
+		System.arraycopy(childChars, slot, childChars, slot+1, end-slot);
+		children[slot] = child;
+		childChars[slot] = text[labelStart[child]];
+		childCount[node] = count+1;
+	}
+
+	int newNode(int start, int length) {
+		if (nodeCount == labelStart.length) {
+			int cap = nodeCount*2;
+			labelStart = Arrays.copyOf(labelStart, cap);
+			labelLength = Arrays.copyOf(labelLength, cap);
+			wordId = Arrays.copyOf(wordId, cap);
+			maxWeight = Arrays.copyOf(maxWeight, cap);
+			childOffset = Arrays.copyOf(childOffset, cap);
+			childCount = Arrays.copyOf(childCount, cap);
+			childCapacity = Arrays.copyOf(childCapacity, cap);
+		}
+		int node = nodeCount++;
+		labelStart[node] = start;
+		labelLength[node] = (short)length;
+		wordId[node] = -1;
+		maxWeight[node] = Integer.MIN_VALUE;
+		childOffset[node] = 0;
+		childCount[node] = 0;
+		childCapacity[node] = 0;
+		return node;
+	}
+
+	private void ensureText(int cap) {
+		if (cap > text.length) {
+			text = Arrays.copyOf(text, Math.max(cap, text.length*2));
+		}
+	}
+
+	private void ensureWords(int cap) {
+		if (cap > wordStart.length) {
+			wordStart = Arrays.copyOf(wordStart, Math.max(cap, wordStart.length*2));
+			weight = Arrays.copyOf(weight, wordStart.length);
+		}
+	}
+
+	private void ensurePool(int cap) {
+		if (cap > children.length) {
+			int n = Math.max(cap, children.length*2);
+			children = Arrays.copyOf(children, n);
+			childChars = Arrays.copyOf(childChars, n);
+		}
+	}
+}
@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// This class implements a compressed trie that can be read and extended by many threads at once.
+// Lookups and completions take no locks: a node's label never changes, and its children are an
+// immutable sorted array that is replaced as a whole (copy on write) through a volatile field, so a
+// reader always sees a consistent snapshot of each node. Inserts lock only the nodes they change: the
+// node that gets a new child or becomes a word, or, when an edge has to be split, the parent and the
+// child being split. A split puts a new node in place of the child, and marks the old child replaced;
+// an insert that finds the node it locked replaced starts over from the root.
+
+public class ConcurrentTrie {
+
+	/**
+	 * A node of the trie.
+	 */
+	static class Node {
+
+		/**
+		 * Characters on the edge into this node. Empty for the root.
+		 */
+		final String label;
+
+		/**
+		 * Children, sorted on the first character of their labels. Never modified once published.
+		 */
+		volatile Node[] children;
+
+		/**
+		 * Tells if a word ends at this node.
+		 */
+		volatile boolean word;
+
+		/**
+		 * Set (under this node's lock) when this node has been split, and is no longer in the trie.
+		 */
+		boolean replaced;
+
+		Node(String label, Node[] children, boolean word) {
+			this.label = label;
+			this.children = children;
+			this.word = word;
+		}
+	}
+
+	static final Node[] NO_CHILDREN = new Node[0];
+
+	/**
+	 * Root node of this trie.
+	 */
+	final Node root;
+
+	/**
+	 * Number of words in this trie.
+	 */
+	private final AtomicInteger size;
+
+	/**
+	 * Initializes an empty trie.
+	 */
+	public ConcurrentTrie() {
+		root = new Node("", NO_CHILDREN, false);
+		size = new AtomicInteger();
+	}
+
+	/**
+	 * Inserts a word into this trie. Converts to lower case before adding. Returns true if the
+	 * word was not in the trie yet. May be called by any number of threads at once, and
+	 * together with lookups.
+	 */
+	public boolean insertWord(String word) {
+		word = word.toLowerCase();
+		int len = word.length();
+		restart:
+		for (;;) {
+			Node node = root;
+			int i = 0;
+			for (;;) {
+				if (i == len) {
+					synchronized (node) {
+						if (node.replaced) {
+							continue restart;
+						}
+						if (node.word) {
+							return false;
+						}
+						node.word = true;
+					}
+					size.incrementAndGet();
+					return true;
+				}
+
+				Node[] children = node.children;
+				int slot = childSlot(children, word.charAt(i));
+				if (slot < 0) {
+					synchronized (node) {
+						if (node.replaced) {
+							continue restart;
+						}
+						if (node.children != children) {
+							continue;  // changed since it was read, look again
+						}
+						node.children = insert(children, -slot-1, new Node(word.substring(i), NO_CHILDREN, true));
+					}
+					size.incrementAndGet();
+					return true;
+				}
+
+				Node child = children[slot];
+				String label = child.label;
+				int j = 1, ll = label.length();
+				while (j < ll && i+j < len && label.charAt(j) == word.charAt(i+j)) {
+					j++;
+				}
+				if (j == ll) {
+					node = child;
+					i += j;
+					continue;
+				}
+
+				// the word leaves the edge into child after j characters: split the edge
+				synchronized (node) {
+					if (node.replaced) {
+						continue restart;
+					}
+					if (node.children != children) {
+						continue;
+					}
+					synchronized (child) {
+						// child can not be replaced without the lock on node, but may have changed
+						Node tail = new Node(label.substring(j), child.children, child.word);
+						Node[] midChildren;
+						if (i+j == len) {
+							midChildren = new Node[] { tail };
+						} else {
+							Node leaf = new Node(word.substring(i+j), NO_CHILDREN, true);
+							midChildren = leaf.label.charAt(0) < tail.label.charAt(0)
+									? new Node[] { leaf, tail } : new Node[] { tail, leaf };
+						}
+						Node mid = new Node(label.substring(0, j), midChildren, i+j == len);
+						child.replaced = true;
+						Node[] copy = children.clone();
+						copy[slot] = mid;
+						node.children = copy;
+					}
+				}
+				size.incrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Tells if the given word is in this trie.
+	 */
+	public boolean contains(String word) {
+		word = word.toLowerCase();
+		Node node = root;
+		int i = 0, len = word.length();
+		while (i < len) {
+			Node[] children = node.children;
+			int slot = childSlot(children, word.charAt(i));
+			if (slot < 0) {
+				return false;
+			}
+			node = children[slot];
+			if (!word.startsWith(node.label, i)) {
+				return false;
+			}
+			i += node.label.length();
+		}
+		return node.word;
+	}
+
+	/**
+	 * Tells if any word in this trie starts with the given prefix.
+	 */
+	public boolean hasPrefix(String prefix) {
+		Node node = locate(prefix.toLowerCase(), null);
+		// every node but the root has a word at or below it
+		return node != null && (node.word || node.children.length > 0);
+	}
+
+	/**
+	 * Collects all words in this trie that start with the given prefix, in sorted order.
+	 * Returns null if there are none, like Trie.completionList. Words inserted while this runs
+	 * may or may not be included.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		prefix = prefix.toLowerCase();
+		int[] start = new int[1];
+		Node node = locate(prefix, start);
+		if (node == null) {
+			return null;
+		}
+		ArrayList<String> result = new ArrayList<String>();
+		// the prefix may end inside node's label: the words below node start with the whole label
+		StringBuilder sb = new StringBuilder(prefix);
+		sb.setLength(start[0]);
+		collect(node, sb, result);
+		return result.isEmpty() ? null : result;
+	}
+
+	/**
+	 * Returns the number of words in this trie.
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	// adds the words at and below node to result; sb holds the path to node's parent
+	private static void collect(Node node, StringBuilder sb, ArrayList<String> result) {
+		int mark = sb.length();
+		sb.append(node.label);
+		if (node.word) {
+			result.add(sb.toString());
+		}
+		for (Node child : node.children) {
+			collect(child, sb, result);
+		}
+		sb.setLength(mark);
+	}
+
+	/**
+	 * Follows prefix down from the root. Returns the node where it ends (the words below it are
+	 * the ones that start with prefix), or null if it runs off the trie. If start is not null,
+	 * start[0] is set to the length of the path to the node's parent.
+	 */
+	Node locate(String prefix, int[] start) {
+		Node node = root;
+		int i = 0, len = prefix.length();
+		while (i < len) {
+			Node[] children = node.children;
+			int slot = childSlot(children, prefix.charAt(i));
+			if (slot < 0) {
+				return null;
+			}
+			node = children[slot];
+			String label = node.label;
+			int j = 1, ll = label.length();
+			for (; j < ll && i+j < len; j++) {
+				if (label.charAt(j) != prefix.charAt(i+j)) {
+					return null;
+				}
+			}
+			if (start != null) {
+				start[0] = i;
+			}
+			i += j;
+		}
+		return node;
+	}
+
+	/**
+	 * Binary searches children for the one whose label starts with c. Returns its slot, or
+	 * -(insertion slot)-1 if there is none.
+	 */
+	static int childSlot(Node[] children, char c) {
+		int lo = 0, hi = children.length-1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char m = children[mid].label.charAt(0);
+			if (m < c) {
+				lo = mid + 1;
+			} else if (m > c) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -lo-1;
+	}
+
+	// returns a copy of children with node inserted at slot
+	private static Node[] insert(Node[] children, int slot, Node node) {
+		Node[] copy = new Node[children.length+1];
+		System.arraycopy(children, 0, copy, 0, slot);
+		copy[slot] = node;
+		System.arraycopy(children, slot, copy, slot+1, children.length-slot);
+		return copy;
+	}
+}
@@ -0,0 +1,324 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+// This class implements a directed acyclic word graph: a trie in which equivalent subtrees (same words
+// below them) are merged into one, so suffixes like "ing" and "tion" are stored once, not once per
+// word that ends in them. It is read-only, and is built from sorted words in one pass, minimizing as
+// it goes (Daciuk et al., "Incremental construction of minimal acyclic finite-state automata"): once
+// a word is added, the part of the previous word's path it does not share can no longer change, so
+// those states are replaced with an equivalent registered state, or registered themselves. States and
+// edges are then flat arrays: the edges of a state are a block sorted on their characters.
+
+public class Dawg {
+
+	/**
+	 * Edges of each state: a block of edges from edgeStart[s] to edgeStart[s+1].
+	 */
+	int[] edgeStart;
+
+	/**
+	 * Tells if a word ends at each state.
+	 */
+	boolean[] accepting;
+	int stateCount;
+
+	/**
+	 * Character and target state of each edge.
+	 */
+	char[] edgeChar;
+	int[] edgeTarget;
+	int edgeCount;
+
+	/**
+	 * The start state.
+	 */
+	int root;
+
+	/**
+	 * Number of words.
+	 */
+	int wordCount;
+
+	/**
+	 * Register of states, used while building: an open addressing hash table of state id + 1
+	 * (0 is an empty slot), hashed on the accepting flag and edges of the state.
+	 */
+	private int[] register;
+
+	/**
+	 * A state on the path of the last word added, whose edges may still change. Its last edge
+	 * leads to the next state on the path, and has no target until that state is registered.
+	 */
+	private static class Open {
+		boolean accepting;
+		char[] chars = new char[4];
+		int[] targets = new int[4];
+		int count;
+
+		void add(char c) {
+			if (count == chars.length) {
+				chars = Arrays.copyOf(chars, count*2);
+				targets = Arrays.copyOf(targets, count*2);
+			}
+			chars[count] = c;
+			targets[count++] = -1;
+		}
+	}
+
+	private Dawg() {
+		edgeStart = new int[64];
+		accepting = new boolean[64];
+		edgeChar = new char[256];
+		edgeTarget = new int[256];
+		register = new int[256];
+	}
+
+	/**
+	 * Builds a DAWG out of words that come in sorted order (after lower casing). Repeated words
+	 * are skipped. Throws IllegalArgumentException if the words are out of order.
+	 */
+	public static Dawg buildSorted(Iterator<String> words) {
+		Dawg dawg = new Dawg();
+
+		Open[] path = new Open[16];
+		path[0] = new Open();
+		String prev = null;
+		while (words.hasNext()) {
+			String word = words.next().toLowerCase();
+			int l = 0;
+			if (prev != null) {
+				int max = Math.min(word.length(), prev.length());
+				while (l < max && word.charAt(l) == prev.charAt(l)) {
+					l++;
+				}
+				if (l == word.length() && l == prev.length()) {
+					continue;
+				}
+				if (l == word.length() || (l < prev.length() && word.charAt(l) < prev.charAt(l))) {
+					throw new IllegalArgumentException("Words are not in sorted order: " + prev + ", " + word);
+				}
+				dawg.minimize(path, prev.length(), l);
+			}
+
+			if (word.length() >= path.length) {
+				path = Arrays.copyOf(path, Math.max(path.length*2, word.length()+1));
+			}
+			for (int i=l; i < word.length(); i++) {
+				path[i].add(word.charAt(i));
+				if (path[i+1] == null) {
+					path[i+1] = new Open();
+				}
+				path[i+1].accepting = false;
+				path[i+1].count = 0;
+			}
+			path[word.length()].accepting = true;
+			dawg.wordCount++;
+			prev = word;
+		}
+
+		dawg.minimize(path, prev == null ? 0 : prev.length(), 0);
+		dawg.root = dawg.register(path[0]);
+		dawg.edgeStart[dawg.stateCount] = dawg.edgeCount;
+		dawg.register = null;
+		return dawg;
+	}
+
+	/**
+	 * Builds a DAWG out of words in any order: they are lower cased and sorted, then loaded
+	 * with buildSorted.
+	 */
+	public static Dawg build(Collection<String> words) {
+		String[] sorted = new String[words.size()];
+		int i = 0;
+		for (String w : words) {
+			sorted[i++] = w.toLowerCase();
+		}
+		Arrays.sort(sorted);
+		return buildSorted(Arrays.asList(sorted).iterator());
+	}
+
+	/**
+	 * Registers the open states on the path below depth l, deepest first, and points the edge
+	 * into each one at its registered state.
+	 */
+	private void minimize(Open[] path, int depth, int l) {
+		for (int d=depth; d > l; d--) {
+			Open parent = path[d-1];
+			parent.targets[parent.count-1] = register(path[d]);
+		}
+	}
+
+	/**
+	 * Returns the registered state equivalent to the given one, adding it if there is none.
+	 * Its edges all lead to registered states, so two states are equivalent exactly when they
+	 * have the same accepting flag and the same edges.
+	 */
+	private int register(Open state) {
+		int h = 0;
+		for (int i=0; i < state.count; i++) {
+			h = (h*31 + state.chars[i]) * 0x9E3779B1 + state.targets[i];
+		}
+		h = hash(h, state.accepting);
+		int mask = register.length-1;
+		int slot = h & mask;
+		for (; register[slot] != 0; slot = (slot+1) & mask) {
+			if (same(register[slot]-1, state)) {
+				return register[slot]-1;
+			}
+		}
+
+		if (stateCount+1 >= edgeStart.length) {
+			edgeStart = Arrays.copyOf(edgeStart, edgeStart.length*2);
+			accepting = Arrays.copyOf(accepting, edgeStart.length);
+		}
+		if (edgeCount + state.count > edgeChar.length) {
+			int cap = Math.max(edgeChar.length*2, edgeCount + state.count);
+			edgeChar = Arrays.copyOf(edgeChar, cap);
+			edgeTarget = Arrays.copyOf(edgeTarget, cap);
+		}
+		int s = stateCount++;
+		accepting[s] = state.accepting;
+		edgeStart[s] = edgeCount;
+		System.arraycopy(state.chars, 0, edgeChar, edgeCount, state.count);
+		System.arraycopy(state.targets, 0, edgeTarget, edgeCount, state.count);
+		edgeCount += state.count;
+		edgeStart[s+1] = edgeCount;
+		register[slot] = s+1;
+		if (stateCount*2 > register.length) {
+			rehash();
+		}
+		return s;
+	}
+
+	// tells if registered state s has the same accepting flag and edges as state
+	private boolean same(int s, Open state) {
+		int e = edgeStart[s];
+		if (accepting[s] != state.accepting || edgeStart[s+1] - e != state.count) {
+			return false;
+		}
+		for (int i=0; i < state.count; i++) {
+			if (edgeChar[e+i] != state.chars[i] || edgeTarget[e+i] != state.targets[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// doubles the register, placing the registered states again
+	private void rehash() {
+		int[] table = new int[register.length*2];
+		int mask = table.length-1;
+		for (int s=0; s < stateCount; s++) {
+			int h = 0;
+			for (int e=edgeStart[s]; e < edgeStart[s+1]; e++) {
+				h = (h*31 + edgeChar[e]) * 0x9E3779B1 + edgeTarget[e];
+			}
+			int slot = hash(h, accepting[s]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot+1) & mask;
+			}
+			table[slot] = s+1;
+		}
+		register = table;
+	}
+
+	private static int hash(int h, boolean accepting) {
+		h = h*31 + (accepting ? 1 : 0);
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Tells if the given word is in this DAWG.
+	 */
+	public boolean contains(String word) {
+		int s = walk(word.toLowerCase());
+		return s >= 0 && accepting[s];
+	}
+
+	/**
+	 * Tells if any word in this DAWG starts with the given prefix.
+	 */
+	public boolean hasPrefix(String prefix) {
+		// every state but an empty root has a word at or below it
+		return wordCount > 0 && walk(prefix.toLowerCase()) >= 0;
+	}
+
+	/**
+	 * Returns all the words in this DAWG that start with the given prefix, in alphabetical
+	 * (char) order, or null if there are none.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		prefix = prefix.toLowerCase();
+		int s = walk(prefix);
+		if (s < 0) {
+			return null;
+		}
+		ArrayList<String> result = new ArrayList<String>();
+		collect(s, new StringBuilder(prefix), result);
+		return result.isEmpty() ? null : result;
+	}
+
+	/**
+	 * Returns the number of words in this DAWG.
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * Returns the number of states in this DAWG.
+	 */
+	public int stateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns the number of edges in this DAWG.
+	 */
+	public int edgeCount() {
+		return edgeCount;
+	}
+
+	// adds the words at and below state s to result; sb holds the path to s
+	private void collect(int s, StringBuilder sb, ArrayList<String> result) {
+		if (accepting[s]) {
+			result.add(sb.toString());
+		}
+		int len = sb.length();
+		for (int e=edgeStart[s]; e < edgeStart[s+1]; e++) {
+			sb.append(edgeChar[e]);
+			collect(edgeTarget[e], sb, result);
+			sb.setLength(len);
+		}
+	}
+
+	/**
+	 * Follows the given characters from the start state. Returns the state reached, or -1.
+	 */
+	int walk(String chars) {
+		int s = root;
+		for (int i=0; i < chars.length() && s >= 0; i++) {
+			s = target(s, chars.charAt(i));
+		}
+		return s;
+	}
+
+	// binary searches the edges of state s for character c; returns the target state, or -1
+	private int target(int s, char c) {
+		int lo = edgeStart[s], hi = edgeStart[s+1]-1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char m = edgeChar[mid];
+			if (m < c) {
+				lo = mid + 1;
+			} else if (m > c) {
+				hi = mid - 1;
+			} else {
+				return edgeTarget[mid];
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,95 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// A MIN-heap of long keys in an array, for priority queues that pack their priority and payload into a long.
+
+public class LongMinHeap {
+
+	private long[] items;
+	private int size;
+
+	/**
+	 * Constructs a new, empty heap with the specified initial capacity.
+	 */
+	public LongMinHeap(int cap) {
+		items = new long[Math.max(1, cap)];
+		size = 0;
+	}
+
+	public void siftUp(int k) {  // sift up starting at k
+		long item = items[k];
+		while (k > 0) {
+			int p = (k-1)/2;
+			if (items[p] <= item) {
+				break;
+			}
+			items[k] = items[p];
+			k = p;
+		}
+		items[k] = item;
+	}
+
+	public void siftDown(int k) {  // sift down starting at k
+		long item = items[k];
+		while (2*k+1 < size) {
+			int min = 2*k+1;
+			if (min+1 < size && items[min+1] < items[min]) {
+				min++;
+			}
+			if (items[min] >= item) {
+				break;
+			}
+			items[k] = items[min];
+			k = min;
+		}
+		items[k] = item;
+	}
+
+	/**
+	 * Inserts a key into the heap.
+	 */
+	public void insert(long item) {
+		if (size == items.length) {
+			items = Arrays.copyOf(items, size*2);
+		}
+		items[size++] = item;
+		siftUp(size-1);
+	}
+
+	/**
+	 * Removes and returns the min key in the heap.
+	 */
+	public long deleteMin()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		long min = items[0];
+		items[0] = items[--size];
+		if (size > 0) {
+			siftDown(0);
+		}
+		return min;
+	}
+
+	/**
+	 * Returns the number of keys currently stored in the heap.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Tells if the heap is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all keys.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,336 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+// This class implements a read-only compressed trie that is searched directly off a memory mapped file,
+// so it is never rebuilt at startup, and processes that map the same file share one copy of it in the
+// page cache. The trie is over the UTF-8 bytes of the words. Nodes are numbered breadth first, so the
+// children of a node are consecutive nodes, sorted on the first byte of their labels. Words are stored
+// in sorted order, so the words under any node are a range of word ids.
+//
+// File layout (all ints are big-endian):
+//   header     magic, version, nodeCount, wordCount, nodesOffset, wordsOffset, poolOffset, reserved
+//   nodes      nodeCount x (label offset, TERMINAL | first label byte << 23 | label length,
+//              first child, child count, first word, end word)
+//   words      wordCount+1 x offset of the word in the pool (word w ends where word w+1 starts)
+//   pool       UTF-8 bytes of all words, in sorted order; labels point into it
+
+public class MappedTrie {
+
+	static final int MAGIC = 0x54524945;  // "TRIE"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 32;
+	static final int NODE_SIZE = 24;
+	static final int TERMINAL = 0x80000000;
+	static final int FIRST_SHIFT = 23;
+	static final int LENGTH_MASK = (1 << FIRST_SHIFT) - 1;
+
+	/**
+	 * The mapped trie file.
+	 */
+	private MappedByteBuffer buf;
+
+	private int nodeCount, wordCount;
+	private int nodesOffset, wordsOffset;
+
+	private MappedTrie(MappedByteBuffer buf)
+	throws IOException {
+		this.buf = buf;
+		if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+			throw new IOException("Not a trie file");
+		}
+		if (buf.getInt(4) != VERSION) {
+			throw new IOException("Unsupported trie file version " + buf.getInt(4));
+		}
+		nodeCount = buf.getInt(8);
+		wordCount = buf.getInt(12);
+		nodesOffset = buf.getInt(16);
+		wordsOffset = buf.getInt(20);
+	}
+
+	/**
+	 * Maps the given trie file into memory. Nothing but the header is read until a search is done.
+	 */
+	public static MappedTrie open(String trieFile)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(trieFile, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			if (ch.size() > Integer.MAX_VALUE) {
+				throw new IOException("Trie file is larger than 2GB");
+			}
+			// the mapping stays valid after the file is closed
+			return new MappedTrie(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes the words of a CompactTrie to a file in the mapped trie format.
+	 */
+	public static void write(CompactTrie trie, String trieFile)
+	throws IOException {
+		ArrayList<String> words = new ArrayList<String>(trie.size());
+		for (int id=0; id < trie.size(); id++) {
+			words.add(trie.word(id));
+		}
+		write(words, trieFile);
+	}
+
+	/**
+	 * Writes the given words to a file in the mapped trie format. Converts to lower case, and
+	 * drops repeated words.
+	 */
+	public static void write(Collection<String> words, String trieFile)
+	throws IOException {
+		byte[][] sorted = new byte[words.size()][];
+		int n = 0;
+		for (String w : words) {
+			sorted[n++] = w.toLowerCase().getBytes(StandardCharsets.UTF_8);
+		}
+		Arrays.sort(sorted, new Comparator<byte[]>() {
+			public int compare(byte[] a, byte[] b) {
+				return compareBytes(a, b);
+			}
+		});
+		int count = 0;
+		for (int i=0; i < n; i++) {
+			if (count == 0 || compareBytes(sorted[count-1], sorted[i]) != 0) {
+				sorted[count++] = sorted[i];
+			}
+		}
+
+		int[] wordStart = new int[count+1];
+		for (int i=0; i < count; i++) {
+			wordStart[i+1] = wordStart[i] + sorted[i].length;
+		}
+		int nodesOffset = HEADER_SIZE;
+		// a radix trie over count words has at most 2*count nodes, plus the root
+		long size = nodesOffset + (long)(2*count+1)*NODE_SIZE + (long)(count+1)*4 + wordStart[count];
+		if (size > Integer.MAX_VALUE || wordStart[count] < 0) {
+			throw new IOException("Trie does not fit in a 2GB file");
+		}
+		if (longest(sorted, count) > LENGTH_MASK) {
+			throw new IllegalArgumentException("Word is too long");
+		}
+
+		// nodes are made breadth first: node i covers the words [lo[i], hi[i]) which share
+		// their first depth[i] bytes, and its label runs from depth[i] to the end of their
+		// common prefix (the root's label is empty)
+		int cap = 2*count+1;
+		int[] lo = new int[cap], hi = new int[cap], depth = new int[cap];
+		int[] labelEnd = new int[cap], firstChild = new int[cap], childCount = new int[cap];
+		boolean[] terminal = new boolean[cap];
+		int nodes = 1;
+		lo[0] = 0;
+		hi[0] = count;
+		for (int node=0; node < nodes; node++) {
+			int a = lo[node], b = hi[node];
+			int end = node == 0 || b == a ? depth[node] : commonPrefix(sorted[a], sorted[b-1]);
+			labelEnd[node] = end;
+			if (a < b && sorted[a].length == end) {
+				terminal[node] = true;
+				a++;
+			}
+			firstChild[node] = nodes;
+			// children split the rest of the words on their next byte
+			while (a < b) {
+				int c = sorted[a][end];
+				int e = a+1;
+				while (e < b && sorted[e][end] == c) {
+					e++;
+				}
+				lo[nodes] = a;
+				hi[nodes] = e;
+				depth[nodes] = end;
+				nodes++;
+				a = e;
+			}
+			childCount[node] = nodes - firstChild[node];
+		}
+
+		int wordsOffset = nodesOffset + nodes*NODE_SIZE;
+		int pool = wordsOffset + (count+1)*4;
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(trieFile), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nodes);
+			out.writeInt(count);
+			out.writeInt(nodesOffset);
+			out.writeInt(wordsOffset);
+			out.writeInt(pool);
+			out.writeInt(0);
+
+			for (int node=0; node < nodes; node++) {
+				// the first byte of the label is kept in the entry, so that searching the children
+				// of a node does not touch the pool
+				int length = labelEnd[node] - depth[node];
+				int first = length > 0 ? sorted[lo[node]][depth[node]] & 0xff : 0;
+				out.writeInt(pool + (lo[node] < count ? wordStart[lo[node]] : 0) + depth[node]);
+				out.writeInt((terminal[node] ? TERMINAL : 0) | first << FIRST_SHIFT | length);
+				out.writeInt(firstChild[node]);
+				out.writeInt(childCount[node]);
+				out.writeInt(lo[node]);
+				out.writeInt(hi[node]);
+			}
+			for (int i=0; i <= count; i++) {
+				out.writeInt(pool + wordStart[i]);
+			}
+			for (int i=0; i < count; i++) {
+				out.write(sorted[i]);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Tells if the given word is in this trie.
+	 */
+	public boolean contains(String word) {
+		byte[] key = word.toLowerCase().getBytes(StandardCharsets.UTF_8);
+		int e = locate(key, true);
+		return e >= 0 && (buf.getInt(e+4) & TERMINAL) != 0;
+	}
+
+	/**
+	 * Tells if any word in this trie starts with the given prefix.
+	 */
+	public boolean hasPrefix(String prefix) {
+		int e = locate(prefix.toLowerCase().getBytes(StandardCharsets.UTF_8), false);
+		return e >= 0 && buf.getInt(e+16) < buf.getInt(e+20);
+	}
+
+	/**
+	 * Collects all words in this trie that start with the given prefix, in sorted order (on
+	 * code points). Returns null if there are none, like Trie.completionList.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		int e = locate(prefix.toLowerCase().getBytes(StandardCharsets.UTF_8), false);
+		if (e < 0) {
+			return null;
+		}
+		int first = buf.getInt(e+16), end = buf.getInt(e+20);
+		ArrayList<String> result = new ArrayList<String>(end - first);
+		for (int w=first; w < end; w++) {
+			result.add(word(w));
+		}
+		return result.isEmpty() ? null : result;
+	}
+
+	/**
+	 * Returns the number of words in this trie.
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * Returns the number of nodes in this trie.
+	 */
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * Returns the word with the given id. Ids are the positions of the words in sorted order.
+	 */
+	public String word(int id) {
+		int start = buf.getInt(wordsOffset + id*4);
+		int end = buf.getInt(wordsOffset + id*4 + 4);
+		byte[] b = new byte[end - start];
+		for (int i=0; i < b.length; i++) {
+			b[i] = buf.get(start+i);
+		}
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Follows key down from the root. Returns the offset of the entry of the node where it ends,
+	 * or -1 if it runs off the trie. If whole is true, key must also end at the end of that node's
+	 * label; otherwise it may end inside it (the node's words are then the ones starting with key).
+	 */
+	int locate(byte[] key, boolean whole) {
+		int e = nodesOffset;
+		int i = 0;
+		while (i < key.length) {
+			e = child(e, key[i] & 0xff);
+			if (e < 0) {
+				return -1;
+			}
+			int label = buf.getInt(e), length = buf.getInt(e+4) & LENGTH_MASK;
+			int j = 1;
+			for (; j < length && i+j < key.length; j++) {
+				if (buf.get(label+j) != key[i+j]) {
+					return -1;
+				}
+			}
+			if (whole && j < length) {
+				return -1;
+			}
+			i += j;
+		}
+		return e;
+	}
+
+	// binary searches the children of the node at entry e for the one whose label starts with c
+	private int child(int e, int c) {
+		int lo = buf.getInt(e+8), hi = lo + buf.getInt(e+12) - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int m = nodesOffset + mid*NODE_SIZE;
+			int d = (buf.getInt(m+4) >>> FIRST_SHIFT & 0xff) - c;
+			if (d < 0) {
+				lo = mid + 1;
+			} else if (d > 0) {
+				hi = mid - 1;
+			} else {
+				return m;
+			}
+		}
+		return -1;
+	}
+
+	// compares a and b as unsigned bytes
+	static int compareBytes(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i=0; i < n; i++) {
+			int c = (a[i] & 0xff) - (b[i] & 0xff);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	// length of the longest of the first count words
+	private static int longest(byte[][] words, int count) {
+		int max = 0;
+		for (int i=0; i < count; i++) {
+			max = Math.max(max, words[i].length);
+		}
+		return max;
+	}
+
+	// length of the common prefix of a and b
+	private static int commonPrefix(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		int i = 0;
+		while (i < n && a[i] == b[i]) {
+			i++;
+		}
+		return i;
+	}
+}